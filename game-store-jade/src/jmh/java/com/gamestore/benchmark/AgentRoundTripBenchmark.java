@@ -0,0 +1,71 @@
+package com.gamestore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.gamestore.api.JadeGatewayService;
+
+/**
+ * Full JadeGatewayService.searchGame round trip through ApiGatewayAgent,
+ * GameStopAgent and, on a local miss, DistributorAgent. SampleTime mode reports
+ * the p50/p90/p99 latency percentiles; Throughput mode reports searches per second.
+ * The hedge parameter selects GameStop's search.hedge mode (see game_db.properties).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class AgentRoundTripBenchmark {
+
+    @Param({"off", "adaptive", "parallel"})
+    private String hedge;
+
+    private final InProcessPlatform platform = new InProcessPlatform();
+    private JadeGatewayService gatewayService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("gamestore.search.hedge", hedge);
+        // Keep ontology-only titles a local miss (see OntologySyncBenchmark)
+        System.setProperty("gamestore.ontology.sync.intervalMillis", "0");
+        // Measure the lookups themselves, not GameStop's cache of them
+        System.setProperty("gamestore.lookup.cache.size", "0");
+        gatewayService = platform.start(1199);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        platform.stop();
+        System.clearProperty("gamestore.search.hedge");
+        System.clearProperty("gamestore.ontology.sync.intervalMillis");
+        System.clearProperty("gamestore.lookup.cache.size");
+    }
+
+    // Found in SQLite by GameStop
+    @Benchmark
+    public String searchLocalHit() throws Exception {
+        return gatewayService.searchGame("Elden Ring").get(15, TimeUnit.SECONDS);
+    }
+
+    // Missed in SQLite, found in the ontology by Distributor
+    @Benchmark
+    public String searchDistributorFallback() throws Exception {
+        return gatewayService.searchGame("Minecraft").get(15, TimeUnit.SECONDS);
+    }
+
+    // Missed in both stores
+    @Benchmark
+    public String searchMiss() throws Exception {
+        return gatewayService.searchGame("No Such Game").get(15, TimeUnit.SECONDS);
+    }
+
+    // Many searches in the same millisecond; each must get its own reply
+    @Benchmark
+    @Threads(8)
+    public String searchLocalHitConcurrent() throws Exception {
+        return gatewayService.searchGame("Elden Ring").get(15, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,97 @@
+package com.gamestore.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.gamestore.model.Game;
+
+/**
+ * Synthetic catalogs for the benchmarks, either as Game objects or as rows in a
+ * database created by RelationalDBConnector.
+ */
+public final class BenchmarkData {
+    private static final String[] GENRES = {"Action", "RolePlaying", "Simulation", "Strategy", "Sports"};
+    private static final String[] PLATFORMS = {"PlayStation 5", "Xbox Series X", "Windows PC", "Nintendo Switch"};
+    private static final String[] FEATURES = {"Online Multiplayer", "Campaign Mode", "Seasonal Events"};
+
+    private BenchmarkData() {}
+
+    public static List<Game> games(int count) {
+        List<Game> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Game game = new Game(i + 1, "Benchmark Game " + i, GENRES[i % GENRES.length], 9.99 + (i % 60), i % 25);
+            game.setReleaseDate(new Date(1609459200000L + i * 86400000L));
+            game.setEsrbRating("T");
+            game.setDescription("Synthetic \"benchmark\" title number " + i);
+            game.setPublisher("Publisher " + (i % 50));
+            game.setDeveloper("Developer " + (i % 80));
+            game.setSource("SQLite Database");
+            for (int p = 0; p < 3; p++) {
+                game.addPlatform(PLATFORMS[(i + p) % PLATFORMS.length]);
+            }
+            for (int f = 0; f < 2; f++) {
+                game.addFeature(FEATURES[(i + f) % FEATURES.length]);
+            }
+            games.add(game);
+        }
+        return games;
+    }
+
+    public static void populate(Connection connection, int totalGames) throws SQLException {
+        Statement countStmt = connection.createStatement();
+        ResultSet rs = countStmt.executeQuery("SELECT COUNT(*) FROM games");
+        int existing = rs.next() ? rs.getInt(1) : 0;
+        countStmt.close();
+
+        connection.setAutoCommit(false);
+        PreparedStatement insertGame = connection.prepareStatement(
+            "INSERT INTO games (title, genre, price, stock, release_date, esrb_rating, description, publisher, developer) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            Statement.RETURN_GENERATED_KEYS
+        );
+        PreparedStatement insertPlatform = connection.prepareStatement(
+            "INSERT INTO game_platforms (game_id, platform_name) VALUES (?, ?)");
+        PreparedStatement insertFeature = connection.prepareStatement(
+            "INSERT INTO game_features (game_id, feature_name) VALUES (?, ?)");
+
+        for (int i = existing; i < totalGames; i++) {
+            insertGame.setString(1, "Benchmark Game " + i);
+            insertGame.setString(2, GENRES[i % GENRES.length]);
+            insertGame.setDouble(3, 9.99 + (i % 60));
+            insertGame.setInt(4, i % 25);
+            insertGame.setString(5, "2021-06-" + String.format("%02d", 1 + i % 28));
+            insertGame.setString(6, "T");
+            insertGame.setString(7, "Synthetic \"benchmark\" title number " + i);
+            insertGame.setString(8, "Publisher " + (i % 50));
+            insertGame.setString(9, "Developer " + (i % 80));
+            insertGame.executeUpdate();
+
+            ResultSet keys = insertGame.getGeneratedKeys();
+            if (keys.next()) {
+                int gameId = keys.getInt(1);
+                for (int p = 0; p < 3; p++) {
+                    insertPlatform.setInt(1, gameId);
+                    insertPlatform.setString(2, PLATFORMS[(i + p) % PLATFORMS.length]);
+                    insertPlatform.executeUpdate();
+                }
+                for (int f = 0; f < 2; f++) {
+                    insertFeature.setInt(1, gameId);
+                    insertFeature.setString(2, FEATURES[(i + f) % FEATURES.length]);
+                    insertFeature.executeUpdate();
+                }
+            }
+        }
+
+        insertGame.close();
+        insertPlatform.close();
+        insertFeature.close();
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+}
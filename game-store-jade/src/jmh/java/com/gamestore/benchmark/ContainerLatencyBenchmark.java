@@ -0,0 +1,70 @@
+package com.gamestore.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.gamestore.api.GameListing;
+import com.gamestore.api.JadeGatewayService;
+
+/**
+ * Gateway round trips to a GameStop replica placed in the gateway's own container
+ * ("main"), in a peripheral container in the same JVM ("container"), or in a
+ * peripheral container in another JVM ("jvm"). The search is answered from
+ * GameStop's lookup cache, so it times two messages and little else; the listing
+ * adds the SQLite query and a catalogSize payload. The "jvm" peer competes with this
+ * JVM for CPU, so run it on a machine with cores to spare.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ContainerLatencyBenchmark {
+
+    @Param({"main", "container", "jvm"})
+    private String placement;
+
+    @Param({"2000"})
+    private int catalogSize;
+
+    private final InProcessPlatform platform = new InProcessPlatform();
+    private JadeGatewayService gatewayService;
+    private File peripheralLog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("gamestore.ontology.sync.intervalMillis", "0");
+        System.setProperty("gamestore.lookup.cache.size", "512");
+        gatewayService = platform.start(1209, catalogSize, "main".equals(placement) ? 1 : 0);
+        if ("container".equals(placement)) {
+            platform.startPeripheralContainer("peer", 1);
+        } else if ("jvm".equals(placement)) {
+            peripheralLog = File.createTempFile("gamestore-peer", ".log");
+            platform.startPeripheralJvm("peer", 1, peripheralLog);
+        }
+        platform.awaitSearch(60000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        platform.stop();
+        if (peripheralLog != null) {
+            peripheralLog.delete();
+        }
+        System.clearProperty("gamestore.ontology.sync.intervalMillis");
+        System.clearProperty("gamestore.lookup.cache.size");
+    }
+
+    @Benchmark
+    public String search() throws Exception {
+        return gatewayService.searchGame("Elden Ring").get(15, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public GameListing listing() throws Exception {
+        return gatewayService.getAllGamesFromSQLite().get(15, TimeUnit.SECONDS);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.gamestore.benchmark;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.gamestore.db.RelationalDBConnector;
+import com.gamestore.model.Game;
+import com.gamestore.ontology.OntologyDBConnector;
+
+/**
+ * Title lookups in the two data stores, without the agents in between. The
+ * legacyLike benchmarks run the LIKE '%title%' scan findGame used before the
+ * FTS5 index, as the baseline for the relational ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataStoreBenchmark {
+
+    @Param({"1000", "50000"})
+    private int rows;
+
+    private File dbFile;
+    private RelationalDBConnector relationalDB;
+    private OntologyDBConnector ontologyDB;
+    private Connection legacyConnection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("gamestore-bench", ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        relationalDB = new RelationalDBConnector(url);
+        legacyConnection = DriverManager.getConnection(url);
+        BenchmarkData.populate(legacyConnection, rows);
+
+        ontologyDB = new OntologyDBConnector();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        relationalDB.close();
+        ontologyDB.close();
+        try {
+            legacyConnection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing benchmark connection: " + e.getMessage());
+        }
+        dbFile.delete();
+    }
+
+    @Benchmark
+    public Game relationalFindHit() {
+        return relationalDB.findGame("Elden Ring");
+    }
+
+    @Benchmark
+    public Game relationalFindMiss() {
+        return relationalDB.findGame("No Such Game");
+    }
+
+    @Benchmark
+    public boolean legacyLikeHit() throws SQLException {
+        return legacyLike("Elden Ring");
+    }
+
+    @Benchmark
+    public boolean legacyLikeMiss() throws SQLException {
+        return legacyLike("No Such Game");
+    }
+
+    private boolean legacyLike(String title) throws SQLException {
+        try (PreparedStatement stmt = legacyConnection.prepareStatement("SELECT * FROM games WHERE title LIKE ?")) {
+            stmt.setString(1, "%" + title + "%");
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    @Benchmark
+    public Game ontologyFindHit() {
+        return ontologyDB.findGame("Minecraft");
+    }
+
+    @Benchmark
+    public Game ontologyFindMiss() {
+        return ontologyDB.findGame("No Such Game");
+    }
+}
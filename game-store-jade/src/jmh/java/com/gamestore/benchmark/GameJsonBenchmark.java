@@ -0,0 +1,119 @@
+package com.gamestore.benchmark;
+
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamestore.model.Game;
+import com.gamestore.model.GameJsonWriter;
+
+/**
+ * Serializes a catalog the way the agents build their GET_ALL_GAMES replies
+ * (the previous per-game toJSON() concatenation versus GameJsonWriter) and
+ * parses it back the way GameController does with Jackson.
+ * Run with -prof gc to compare allocation per operation as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameJsonBenchmark {
+
+    @Param({"10", "1000"})
+    private int games;
+
+    private static final TypeReference<List<Game>> GAME_LIST = new TypeReference<List<Game>>() {};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Game> catalog;
+    private String catalogJson;
+    private String singleGameJson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = BenchmarkData.games(games);
+        catalogJson = GameJsonWriter.toJsonArray(catalog);
+        singleGameJson = GameJsonWriter.toJson(catalog.get(0));
+    }
+
+    @Benchmark
+    public String legacyConcatenation() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < catalog.size(); i++) {
+            if (i > 0) json.append(",");
+            json.append(legacyToJSON(catalog.get(i)));
+        }
+        json.append("]");
+        return json.toString();
+    }
+
+    @Benchmark
+    public String streamingWriter() {
+        return GameJsonWriter.toJsonArray(catalog);
+    }
+
+    @Benchmark
+    public List<Game> jacksonReadList() throws Exception {
+        return objectMapper.readValue(catalogJson, GAME_LIST);
+    }
+
+    @Benchmark
+    public Game jacksonReadSingle() throws Exception {
+        return objectMapper.readValue(singleGameJson, Game.class);
+    }
+
+    // Game.toJSON() as it was before GameJsonWriter, kept here as the baseline
+    private static String legacyToJSON(Game game) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"id\":").append(game.getId())
+            .append(",\"title\":\"").append(game.getTitle()).append("\"")
+            .append(",\"genre\":\"").append(game.getGenre()).append("\"")
+            .append(",\"price\":").append(game.getPrice())
+            .append(",\"stock\":").append(game.getStock());
+
+        if (game.getDescription() != null) {
+            json.append(",\"description\":\"").append(game.getDescription()).append("\"");
+        }
+        if (game.getPublisher() != null) {
+            json.append(",\"publisher\":\"").append(game.getPublisher()).append("\"");
+        }
+        if (game.getDeveloper() != null) {
+            json.append(",\"developer\":\"").append(game.getDeveloper()).append("\"");
+        }
+        if (game.getEsrbRating() != null) {
+            json.append(",\"esrbRating\":\"").append(game.getEsrbRating()).append("\"");
+        }
+        if (game.getReleaseDate() != null) {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+            json.append(",\"releaseDate\":\"").append(sdf.format(game.getReleaseDate())).append("\"");
+        }
+        if (game.getSource() != null) {
+            json.append(",\"source\":\"").append(game.getSource()).append("\"");
+        }
+        if (!game.getPlatforms().isEmpty()) {
+            json.append(",\"platforms\":[");
+            for (int i = 0; i < game.getPlatforms().size(); i++) {
+                if (i > 0) json.append(",");
+                json.append("\"").append(game.getPlatforms().get(i)).append("\"");
+            }
+            json.append("]");
+        }
+        if (!game.getFeatures().isEmpty()) {
+            json.append(",\"features\":[");
+            for (int i = 0; i < game.getFeatures().size(); i++) {
+                if (i > 0) json.append(",");
+                json.append("\"").append(game.getFeatures().get(i)).append("\"");
+            }
+            json.append("]");
+        }
+
+        json.append("}");
+        return json.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.gamestore.benchmark;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gamestore.api.GatewayOverloadedException;
+import com.gamestore.api.JadeGatewayService;
+
+/**
+ * Title searches while other threads keep asking for the whole catalog from both
+ * agents, the way /api/games/all does. With maxScansInFlight=0 every scan goes to
+ * the agents as soon as it arrives and searches queue behind them at GameStop; with
+ * a limit, scans wait in the gateway queue and searches go first. Scans refused
+ * because the scan lane is full are counted, not timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class GatewayAdmissionBenchmark {
+
+    @Param({"0", "2"})
+    private int maxScansInFlight;
+
+    @Param({"2000"})
+    private int catalogSize;
+
+    private final InProcessPlatform platform = new InProcessPlatform();
+    private JadeGatewayService gatewayService;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Refusals {
+        public long refusedScans;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("gamestore.ontology.sync.intervalMillis", "0");
+        // Every search reaches SQLite, so it competes with the scans for GameStop
+        System.setProperty("gamestore.lookup.cache.size", "0");
+        platform.getGatewayService().setMaxScansInFlight(maxScansInFlight);
+        gatewayService = platform.start(1213, catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        platform.stop();
+        System.clearProperty("gamestore.ontology.sync.intervalMillis");
+        System.clearProperty("gamestore.lookup.cache.size");
+    }
+
+    @Benchmark
+    @Group("underScans")
+    @GroupThreads(4)
+    public String search() throws Exception {
+        return gatewayService.searchGame("Elden Ring").get(15, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @Group("underScans")
+    @GroupThreads(8)
+    public void scan(Refusals refusals, Blackhole blackhole) throws Exception {
+        try {
+            blackhole.consume(gatewayService.getAllGamesFromBoth().get(15, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof GatewayOverloadedException)) {
+                throw e;
+            }
+            refusals.refusedScans++;
+            // A client would honour Retry-After; back off briefly instead of spinning on refusals
+            Thread.sleep(10);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,179 @@
+package com.gamestore.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.gamestore.agents.AgentReplicas;
+import com.gamestore.api.JadeGatewayService;
+import com.gamestore.db.RelationalDBConnector;
+
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.AgentController;
+
+/**
+ * Starts the same agents as GameStoreApplication in an in-process JADE main
+ * container, backed by a scratch copy of the SQLite database. More replicas can
+ * join from peripheral containers, in this JVM or in child JVMs running
+ * GameStorePeripheral.
+ */
+public class InProcessPlatform {
+    private final JadeGatewayService gatewayService = new JadeGatewayService();
+    private final List<AgentContainer> peripherals = new ArrayList<>();
+    private final List<Process> peripheralJvms = new ArrayList<>();
+    private AgentContainer container;
+    private File dbFile;
+    private int mainPort;
+
+    // The service the agents will be started with, for settings that must be in place before start
+    public JadeGatewayService getGatewayService() {
+        return gatewayService;
+    }
+
+    public JadeGatewayService start(int mainPort) throws Exception {
+        return start(mainPort, 0);
+    }
+
+    // Same as start(int), with the SQLite catalog padded to catalogSize games first
+    public JadeGatewayService start(int mainPort, int catalogSize) throws Exception {
+        return start(mainPort, catalogSize, 1);
+    }
+
+    // Same as start(int, int), with that many GameStop and Distributor replicas
+    // With no replicas in the main container, add peripherals and call awaitSearch() before use
+    public JadeGatewayService start(int mainPort, int catalogSize, int replicas) throws Exception {
+        this.mainPort = mainPort;
+        dbFile = File.createTempFile("gamestore-platform", ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        System.setProperty("gamestore.jdbc.url", url);
+
+        if (catalogSize > 0) {
+            // Let the connector create the schema and sample rows, then add synthetic games
+            new RelationalDBConnector(url).close();
+            try (Connection connection = DriverManager.getConnection(url)) {
+                BenchmarkData.populate(connection, catalogSize);
+            }
+        }
+
+        Runtime runtime = Runtime.instance();
+        runtime.setCloseVM(false);
+
+        Profile profile = new ProfileImpl();
+        profile.setParameter(Profile.MAIN_HOST, "localhost");
+        profile.setParameter(Profile.MAIN_PORT, String.valueOf(mainPort));
+        profile.setParameter(Profile.NO_MTP, "true");
+        // Keep APDescription.txt and friends out of the working tree
+        profile.setParameter(Profile.FILE_DIR, dbFile.getParentFile().getAbsolutePath() + File.separator);
+        container = runtime.createMainContainer(profile);
+
+        List<AgentController> agents = AgentReplicas.create(container, replicas, replicas);
+        AgentController gateway = container.createNewAgent(
+            "apigateway", "com.gamestore.agents.ApiGatewayAgent", new Object[]{gatewayService});
+        gatewayService.setGatewayAgent(gateway);
+        gatewayService.startReaper();
+
+        for (AgentController agent : agents) {
+            agent.start();
+        }
+        gateway.start();
+
+        // Agents finish setup() asynchronously; wait until a search makes the full trip, but not forever
+        if (replicas > 0) {
+            awaitSearch(60000);
+        }
+        return gatewayService;
+    }
+
+    // A peripheral container in this JVM, joined to the main container like a remote one
+    public AgentContainer startPeripheralContainer(String name, int replicas) throws Exception {
+        Profile profile = new ProfileImpl(false);
+        profile.setParameter(Profile.MAIN_HOST, "localhost");
+        profile.setParameter(Profile.MAIN_PORT, String.valueOf(mainPort));
+        profile.setParameter(Profile.LOCAL_PORT, String.valueOf(mainPort + 1 + peripherals.size()));
+        profile.setParameter(Profile.CONTAINER_NAME, name);
+        AgentContainer peripheral = Runtime.instance().createAgentContainer(profile);
+        if (peripheral == null) {
+            throw new IllegalStateException("Container " + name + " could not join the platform");
+        }
+        peripherals.add(peripheral);
+        for (AgentController agent : AgentReplicas.create(peripheral, name, replicas, replicas)) {
+            agent.start();
+        }
+        return peripheral;
+    }
+
+    // A child JVM running GameStorePeripheral with this JVM's gamestore.* properties; its output goes to log
+    public Process startPeripheralJvm(String name, int replicas, File log) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+            if (String.valueOf(property.getKey()).startsWith("gamestore.")) {
+                command.add("-D" + property.getKey() + "=" + property.getValue());
+            }
+        }
+        command.add("-Dgamestore.jade.port=" + mainPort);
+        command.add("-Dgamestore.jade.container=" + name);
+        command.add("-Dgamestore.agents.gamestop-replicas=" + replicas);
+        command.add("-Dgamestore.agents.distributor-replicas=" + replicas);
+        command.add("com.gamestore.GameStorePeripheral");
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+        peripheralJvms.add(process);
+        return process;
+    }
+
+    // Searches until one makes the full trip, for replicas that are still joining
+    public void awaitSearch(long timeoutMillis) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            try {
+                gatewayService.searchGame("Elden Ring").get(5, TimeUnit.SECONDS);
+                return;
+            } catch (Exception e) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw e;
+                }
+                Thread.sleep(500);
+            }
+        }
+    }
+
+    public void killAgent(String localName) throws Exception {
+        container.getAgent(localName).kill();
+    }
+
+    public void stop() throws IOException {
+        gatewayService.stopReaper();
+        for (Process process : peripheralJvms) {
+            process.destroy();
+        }
+        for (AgentContainer peripheral : peripherals) {
+            try {
+                peripheral.kill();
+            } catch (Exception e) {
+                System.err.println("Error stopping peripheral container: " + e.getMessage());
+            }
+        }
+        try {
+            if (container != null) {
+                container.kill();
+            }
+        } catch (Exception e) {
+            System.err.println("Error stopping benchmark container: " + e.getMessage());
+        }
+        System.clearProperty("gamestore.jdbc.url");
+        if (dbFile != null) {
+            dbFile.delete();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.gamestore.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamestore.model.Game;
+import com.gamestore.model.GameBinaryCodec;
+import com.gamestore.model.GameJsonWriter;
+
+/**
+ * The cost of one listing between an agent and GameController: the agent encodes
+ * the catalog into the reply and the controller decodes it, as JSON text
+ * (GameJsonWriter plus Jackson) or with GameBinaryCodec, with and without gzip.
+ * Payload sizes are printed once per trial; run with -prof gc for allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingEncodingBenchmark {
+
+    @Param({"100", "5000"})
+    private int games;
+
+    private static final TypeReference<List<Game>> GAME_LIST = new TypeReference<List<Game>>() {};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Game> catalog;
+    private String json;
+    private byte[] binary;
+    private byte[] compressed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = BenchmarkData.games(games);
+        json = GameJsonWriter.toJsonArray(catalog);
+        binary = GameBinaryCodec.encode(catalog, false);
+        compressed = GameBinaryCodec.encode(catalog, true);
+        System.out.println(games + " games: JSON " + json.length() + " chars, binary " + binary.length
+            + " bytes, binary+gzip " + compressed.length + " bytes");
+    }
+
+    @Benchmark
+    public String jsonEncode() {
+        return GameJsonWriter.toJsonArray(catalog);
+    }
+
+    @Benchmark
+    public List<Game> jsonDecode() throws Exception {
+        return objectMapper.readValue(json, GAME_LIST);
+    }
+
+    @Benchmark
+    public List<Game> jsonRoundTrip() throws Exception {
+        return objectMapper.readValue(GameJsonWriter.toJsonArray(catalog), GAME_LIST);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return GameBinaryCodec.encode(catalog, false);
+    }
+
+    @Benchmark
+    public List<Game> binaryDecode() {
+        return GameBinaryCodec.decode(binary).getGames();
+    }
+
+    @Benchmark
+    public List<Game> binaryRoundTrip() {
+        return GameBinaryCodec.decode(GameBinaryCodec.encode(catalog, false)).getGames();
+    }
+
+    @Benchmark
+    public List<Game> binaryGzipRoundTrip() {
+        return GameBinaryCodec.decode(GameBinaryCodec.encode(catalog, true)).getGames();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.gamestore.benchmark;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamestore.api.JadeGatewayService;
+import com.gamestore.model.Game;
+
+/**
+ * The SQLite catalog listed in one reply versus streamed in chunks through
+ * ApiGatewayAgent, each decoded the way GameController does. firstChunk is the
+ * time until the first games can be written to the client, after which the rest
+ * of the stream is cancelled. Use -prof gc to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ListingStreamBenchmark {
+
+    @Param({"2000", "20000"})
+    private int catalogSize;
+
+    @Param({"200"})
+    private int chunkSize;
+
+    private final InProcessPlatform platform = new InProcessPlatform();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JadeGatewayService gatewayService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        gatewayService = platform.start(1203, catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        platform.stop();
+    }
+
+    @Benchmark
+    public int singleReply() throws Exception {
+        return gatewayService.getAllGamesFromSQLite().get(30, TimeUnit.SECONDS).toGames(objectMapper).size();
+    }
+
+    @Benchmark
+    public int streamed() throws Exception {
+        int[] games = new int[1];
+        gatewayService.streamAllGames(JadeGatewayService.Source.SQLITE, chunkSize, chunk -> {
+            try {
+                List<Game> decoded = chunk.getGames().toGames(objectMapper);
+                games[0] += decoded.size();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            gatewayService.confirmChunk(chunk);
+        }).get(30, TimeUnit.SECONDS);
+        return games[0];
+    }
+
+    @Benchmark
+    public List<Game> firstChunk() throws Exception {
+        CompletableFuture<List<Game>> first = new CompletableFuture<>();
+        CompletableFuture<Void> stream = gatewayService.streamAllGames(JadeGatewayService.Source.SQLITE, chunkSize, chunk -> {
+            try {
+                first.complete(chunk.getGames().toGames(objectMapper));
+            } catch (Exception e) {
+                first.completeExceptionally(e);
+            }
+        });
+        List<Game> games = first.get(30, TimeUnit.SECONDS);
+        stream.cancel(false);
+        return games;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.gamestore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.gamestore.api.GameListing;
+import com.gamestore.api.JadeGatewayService;
+
+/**
+ * Requests per second through the gateway and the agents from 8 threads, with
+ * com.gamestore logging at INFO as in application.properties. Every request passes
+ * the per-message log statements of ApiGatewayAgent, GameStopAgent, DistributorAgent
+ * and JadeGatewayService, so this measures what those statements cost on the request
+ * path. Run the JVM's output to a file or pipe, as a server would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dlogging.level.com.gamestore=INFO")
+@Threads(8)
+public class LoggingThroughputBenchmark {
+
+    private final InProcessPlatform platform = new InProcessPlatform();
+    private JadeGatewayService gatewayService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("gamestore.ontology.sync.intervalMillis", "0");
+        // Every search reaches SQLite or the ontology and logs on the way
+        System.setProperty("gamestore.lookup.cache.size", "0");
+        gatewayService = platform.start(1215);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        platform.stop();
+        System.clearProperty("gamestore.ontology.sync.intervalMillis");
+        System.clearProperty("gamestore.lookup.cache.size");
+    }
+
+    // Found in SQLite by GameStop
+    @Benchmark
+    public String searchLocalHit() throws Exception {
+        return gatewayService.searchGame("Elden Ring").get(15, TimeUnit.SECONDS);
+    }
+
+    // Missed in SQLite, found in the ontology by Distributor
+    @Benchmark
+    public String searchDistributorFallback() throws Exception {
+        return gatewayService.searchGame("Minecraft").get(15, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public GameListing listing() throws Exception {
+        return gatewayService.getAllGamesFromSQLite().get(15, TimeUnit.SECONDS);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.gamestore.benchmark;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.gamestore.api.JadeGatewayService;
+import com.gamestore.metrics.GameStoreMetrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * End-to-end check of the multi-container deployment: the gateway and a GameStop and
+ * Distributor pair in the main container, and a pair in each of two peripheral JVMs.
+ * Searches must stay on the co-located GameStop, move to the peripheral ones once it
+ * is gone, and keep being answered after one peripheral JVM is killed without
+ * deregistering. Where each search was served is read from the gateway's
+ * gamestore.acl.round.trip timers, one per target replica, so the check does not depend
+ * on what the peripheral JVMs log. Exits with status 1 if any step fails. Runs in the
+ * integration-test phase of the benchmark profile, so this fails the build:
+ * <pre>
+ * mvn -B -Pbenchmark verify
+ * </pre>
+ * or on its own with
+ * <pre>
+ * mvn -B -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.gamestore.benchmark.MultiContainerCheck
+ * </pre>
+ */
+public class MultiContainerCheck {
+
+    private static final String[] TITLES = {
+        "Elden Ring", "Minecraft", "Animal Crossing", "Call of Duty", "Zelda", "No Such Game"
+    };
+
+    private final List<String> failures = new ArrayList<>();
+    // Records the gateway's meters; without a registry the global one drops them
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    public static void main(String[] args) {
+        boolean passed;
+        try {
+            passed = new MultiContainerCheck().run();
+        } catch (Exception e) {
+            // JADE's threads would keep the JVM alive, so always end through System.exit
+            e.printStackTrace();
+            passed = false;
+        }
+        System.out.println(passed ? "Multi-container check passed" : "Multi-container check FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    boolean run() throws Exception {
+        System.setProperty("gamestore.ontology.sync.intervalMillis", "0");
+        System.setProperty("gamestore.lookup.cache.size", "0");
+        Metrics.addRegistry(registry);
+        InProcessPlatform platform = new InProcessPlatform();
+        File logA = File.createTempFile("gamestore-nodeA", ".log");
+        File logB = File.createTempFile("gamestore-nodeB", ".log");
+        try {
+            JadeGatewayService gatewayService = platform.start(1211, 0, 1);
+            Process nodeA = platform.startPeripheralJvm("nodeA", 1, logA);
+            platform.startPeripheralJvm("nodeB", 1, logB);
+            awaitLine(logA, "joined", 60000);
+            awaitLine(logB, "joined", 60000);
+            // The replicas register with the DF in setup(), after the container reports in
+            Thread.sleep(3000);
+
+            long local = answeredBy("gamestop");
+            int failed = searchAll(gatewayService);
+            check(failed == 0, failed + " searches failed with all containers up");
+            local = answeredBy("gamestop") - local;
+            long remote = answeredBy("gamestop-nodeA") + answeredBy("gamestop-nodeB");
+            check(local > 0, "no search was answered by the local GameStop");
+            check(remote == 0, remote + " searches went to a peripheral GameStop while the local one was up");
+
+            platform.killAgent("gamestop");
+            Thread.sleep(1000);
+            failed = searchAll(gatewayService);
+            check(failed == 0, failed + " searches failed without the local GameStop");
+            remote = answeredBy("gamestop-nodeA") + answeredBy("gamestop-nodeB") - remote;
+            check(remote > 0, "no search reached a peripheral GameStop after the local one left");
+
+            nodeA.destroyForcibly().waitFor();
+            long onNodeB = answeredBy("gamestop-nodeB");
+            failed = searchAll(gatewayService);
+            check(failed == 0, failed + " searches failed after nodeA was killed");
+            onNodeB = answeredBy("gamestop-nodeB") - onNodeB;
+            check(onNodeB > 0, "no search reached nodeB's GameStop after nodeA was killed");
+        } finally {
+            platform.stop();
+            logA.delete();
+            logB.delete();
+            System.clearProperty("gamestore.ontology.sync.intervalMillis");
+            System.clearProperty("gamestore.lookup.cache.size");
+            Metrics.removeRegistry(registry);
+        }
+
+        for (String failure : failures) {
+            System.out.println("FAILED: " + failure);
+        }
+        return failures.isEmpty();
+    }
+
+    // Every title a few times over; returns how many searches got no answer
+    private static int searchAll(JadeGatewayService gatewayService) throws InterruptedException {
+        int failed = 0;
+        for (int i = 0; i < 5; i++) {
+            for (String title : TITLES) {
+                try {
+                    gatewayService.searchGame(title).get(15, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    System.out.println("Search for " + title + " failed: " + e);
+                    failed++;
+                }
+            }
+        }
+        return failed;
+    }
+
+    // Searches the gateway sent to this GameStop replica and got an answer for
+    private long answeredBy(String gameStop) {
+        Timer timer = registry.find(GameStoreMetrics.ACL_ROUND_TRIP)
+            .tag("requester", "apigateway")
+            .tag("target", gameStop)
+            .timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    private void check(boolean condition, String failure) {
+        if (!condition) {
+            failures.add(failure);
+        }
+    }
+
+    private static void awaitLine(File log, String text, long timeoutMillis) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (count(log, text) == 0) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException(log.getName() + " never logged '" + text + "'");
+            }
+            Thread.sleep(250);
+        }
+    }
+
+    private static int count(File log, String text) throws Exception {
+        int matches = 0;
+        for (String line : Files.readAllLines(log.toPath(), StandardCharsets.ISO_8859_1)) {
+            if (line.contains(text)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.gamestore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.gamestore.api.JadeGatewayService;
+
+/**
+ * Title search for a game only the ontology knows, with the Distributor's background
+ * ontology sync off (GameStop misses and asks the Distributor) and on (GameStop finds
+ * the mirrored row in SQLite). The sync's own cost is logged by the Distributor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class OntologySyncBenchmark {
+
+    @Param({"off", "on"})
+    private String sync;
+
+    private final InProcessPlatform platform = new InProcessPlatform();
+    private JadeGatewayService gatewayService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("gamestore.ontology.sync.intervalMillis", "on".equals(sync) ? "1000" : "0");
+        // Otherwise GameStop would cache the Distributor's answer and never ask again
+        System.setProperty("gamestore.lookup.cache.size", "0");
+        gatewayService = platform.start(1205);
+
+        if ("on".equals(sync)) {
+            // Mirrored rows carry a SQLite id; the Distributor's copy has -1
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (searchOntologyGame().contains("\"id\":-1")) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Ontology games never reached SQLite");
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        platform.stop();
+        System.clearProperty("gamestore.ontology.sync.intervalMillis");
+        System.clearProperty("gamestore.lookup.cache.size");
+    }
+
+    @Benchmark
+    public String searchOntologyGame() throws Exception {
+        return gatewayService.searchGame("Minecraft").get(15, TimeUnit.SECONDS);
+    }
+}
\ No newline at end of file
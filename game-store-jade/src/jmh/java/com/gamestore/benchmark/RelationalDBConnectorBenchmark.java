@@ -0,0 +1,119 @@
+package com.gamestore.benchmark;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.gamestore.db.RelationalDBConnector;
+import com.gamestore.model.Game;
+import com.gamestore.model.GamePage;
+import com.gamestore.model.GameQuery;
+
+/**
+ * Compares the batched RelationalDBConnector.getAllGames() against the previous
+ * implementation that ran two child queries per game row, and measures the
+ * paginated findGames() listing, which should stay flat as the table grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelationalDBConnectorBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int rows;
+
+    private File dbFile;
+    private RelationalDBConnector connector;
+    private Connection legacyConnection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("gamestore-bench", ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+
+        // The connector creates the schema and the sample games
+        connector = new RelationalDBConnector(url);
+        legacyConnection = DriverManager.getConnection(url);
+        BenchmarkData.populate(legacyConnection, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connector.close();
+        legacyConnection.close();
+        dbFile.delete();
+    }
+
+    @Benchmark
+    public List<Game> batchedGetAllGames() {
+        return connector.getAllGames();
+    }
+
+    @Benchmark
+    public GamePage firstPage() {
+        return connector.findGames(new GameQuery());
+    }
+
+    // Keyset page from the middle of the title order, with filters
+    @Benchmark
+    public GamePage filteredMiddlePage() {
+        String cursor = new GameQuery.Cursor(GameQuery.Sort.TITLE, "Benchmark Game 5", 0).encode();
+        return connector.findGames(new GameQuery()
+            .cursor(cursor)
+            .genre("Action")
+            .platform("Windows PC")
+            .priceRange(10.0, 50.0));
+    }
+
+    @Benchmark
+    public List<Game> perRowGetAllGames() throws SQLException {
+        List<Game> games = new ArrayList<>();
+        Statement stmt = legacyConnection.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT * FROM games ORDER BY title");
+
+        while (rs.next()) {
+            Game game = new Game(
+                rs.getInt("id"),
+                rs.getString("title"),
+                rs.getString("genre"),
+                rs.getDouble("price"),
+                rs.getInt("stock")
+            );
+
+            PreparedStatement platformStmt = legacyConnection.prepareStatement(
+                "SELECT platform_name FROM game_platforms WHERE game_id = ?");
+            platformStmt.setInt(1, game.getId());
+            ResultSet platformRs = platformStmt.executeQuery();
+            while (platformRs.next()) {
+                game.addPlatform(platformRs.getString("platform_name"));
+            }
+            platformStmt.close();
+
+            PreparedStatement featureStmt = legacyConnection.prepareStatement(
+                "SELECT feature_name FROM game_features WHERE game_id = ?");
+            featureStmt.setInt(1, game.getId());
+            ResultSet featureRs = featureStmt.executeQuery();
+            while (featureRs.next()) {
+                game.addFeature(featureRs.getString("feature_name"));
+            }
+            featureStmt.close();
+
+            games.add(game);
+        }
+
+        stmt.close();
+        return games;
+    }
+}
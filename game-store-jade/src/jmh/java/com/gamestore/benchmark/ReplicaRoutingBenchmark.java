@@ -0,0 +1,82 @@
+package com.gamestore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.gamestore.api.GameListing;
+import com.gamestore.api.JadeGatewayService;
+
+/**
+ * Searches and full catalog listings against one or several GameStop and Distributor
+ * replicas. The gateway routes each title to the same GameStop replica, where repeat
+ * searches are answered from its lookup cache, and listings to the replica with the
+ * fewest requests outstanding. Run with -p lookupCache=0 to see the routing alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ReplicaRoutingBenchmark {
+
+    private static final String[] TITLES = {
+        "Elden Ring", "Minecraft", "Animal Crossing", "Call of Duty", "Zelda", "No Such Game"
+    };
+
+    @Param({"1", "4"})
+    private int replicas;
+
+    @Param({"512"})
+    private int lookupCache;
+
+    @Param({"2000"})
+    private int catalogSize;
+
+    private final InProcessPlatform platform = new InProcessPlatform();
+    private JadeGatewayService gatewayService;
+
+    @State(Scope.Thread)
+    public static class TitleCursor {
+        private int next;
+
+        String nextTitle() {
+            return TITLES[next++ % TITLES.length];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("gamestore.lookup.cache.size", String.valueOf(lookupCache));
+        gatewayService = platform.start(1207, catalogSize, replicas);
+        // Let the gateway see every replica in the DF before measuring
+        Thread.sleep(2000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        platform.stop();
+        System.clearProperty("gamestore.lookup.cache.size");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String searches(TitleCursor cursor) throws Exception {
+        return gatewayService.searchGame(cursor.nextTitle()).get(15, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(8)
+    public String search(TitleCursor cursor) throws Exception {
+        return gatewayService.searchGame(cursor.nextTitle()).get(15, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public GameListing listing() throws Exception {
+        return gatewayService.getAllGamesFromSQLite().get(15, TimeUnit.SECONDS);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.gamestore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.gamestore.api.GameListing;
+import com.gamestore.api.JadeGatewayService;
+import com.gamestore.concurrent.VirtualThreads;
+
+/**
+ * Agent round trips with lookups on the agent thread, on GameStop's bounded
+ * worker pool (the default) and on virtual threads. The mixed group runs searches
+ * next to full catalog listings: on the agent thread every search waits behind
+ * the listing in progress. The virtual mode needs Java 21; elsewhere run it with
+ * -p threadMode=inline,workers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ThreadModeBenchmark {
+
+    @Param({"inline", "workers", "virtual"})
+    private String threadMode;
+
+    @Param({"2000"})
+    private int catalogSize;
+
+    private final InProcessPlatform platform = new InProcessPlatform();
+    private JadeGatewayService gatewayService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if ("virtual".equals(threadMode)) {
+            if (!VirtualThreads.isSupported()) {
+                throw new IllegalStateException("threadMode=virtual needs Java 21, running on "
+                    + System.getProperty("java.version"));
+            }
+            System.setProperty(VirtualThreads.PROPERTY, "true");
+        } else {
+            System.clearProperty(VirtualThreads.PROPERTY);
+        }
+        if ("inline".equals(threadMode)) {
+            System.setProperty("gamestore.lookup.workers", "0");
+        } else {
+            System.clearProperty("gamestore.lookup.workers");
+        }
+        // Searches must reach the database to show where the lookup runs
+        System.setProperty("gamestore.lookup.cache.size", "0");
+        gatewayService = platform.start(1201, catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        platform.stop();
+        System.clearProperty(VirtualThreads.PROPERTY);
+        System.clearProperty("gamestore.lookup.workers");
+        System.clearProperty("gamestore.lookup.cache.size");
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String concurrentSearches() throws Exception {
+        return gatewayService.searchGame("Elden Ring").get(15, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(8)
+    public String mixedSearch() throws Exception {
+        return gatewayService.searchGame("Elden Ring").get(15, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public GameListing mixedListing() throws Exception {
+        return gatewayService.getAllGamesFromSQLite().get(15, TimeUnit.SECONDS);
+    }
+}
\ No newline at end of file
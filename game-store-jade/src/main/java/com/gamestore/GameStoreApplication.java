@@ -1,85 +1,115 @@
-package com.gamestore;
-
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-
-import com.gamestore.api.JadeGatewayService;
-
-import io.swagger.v3.oas.models.OpenAPI;
-import io.swagger.v3.oas.models.info.Info;
-import jade.core.Profile;
-import jade.core.ProfileImpl;
-import jade.core.Runtime;
-import jade.wrapper.AgentContainer;
-import jade.wrapper.AgentController;
-import jade.wrapper.StaleProxyException;
-
-import javax.annotation.PostConstruct;
-
-@SpringBootApplication
-public class GameStoreApplication {
-    
-    @Autowired
-    private JadeGatewayService jadeGatewayService;
-
-    public static void main(String[] args) {
-        SpringApplication.run(GameStoreApplication.class, args);
-    }
-    
-    @Bean
-    public OpenAPI customOpenAPI() {
-        return new OpenAPI()
-                .info(new Info()
-                        .title("Game Store API")
-                        .version("1.0")
-                        .description("REST API for GameStop and Distributor Agent Integration"));
-    }
-    
-    @PostConstruct
-    public void startJadeSystem() {
-        try {
-            // Get a JADE runtime instance
-            Runtime jadeRuntime = Runtime.instance();
-            
-            // Create a default profile
-            Profile profile = new ProfileImpl();
-            profile.setParameter(Profile.MAIN_HOST, "localhost");
-            profile.setParameter(Profile.MAIN_PORT, "1100");
-            
-            // Create the main container
-            AgentContainer container = jadeRuntime.createMainContainer(profile);
-            
-            // Start the agents
-            AgentController gameStopAgent = container.createNewAgent(
-                    "gamestop", 
-                    "com.gamestore.agents.GameStopAgent", 
-                    new Object[]{});
-            
-            AgentController distributorAgent = container.createNewAgent(
-                    "distributor", 
-                    "com.gamestore.agents.DistributorAgent", 
-                    new Object[]{});
-            
-            AgentController apiGatewayAgent = container.createNewAgent(
-                    "apigateway", 
-                    "com.gamestore.agents.ApiGatewayAgent", 
-                    new Object[]{jadeGatewayService});
-            
-            // Set the gateway agent in the service
-            jadeGatewayService.setGatewayAgent(apiGatewayAgent);
-            
-            // Start the agents
-            gameStopAgent.start();
-            distributorAgent.start();
-            apiGatewayAgent.start();
-            
-            System.out.println("JADE agents started in Spring application");
-            
-        } catch (StaleProxyException e) {
-            System.err.println("Error starting JADE agents: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
+package com.gamestore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+
+import com.gamestore.agents.AgentReplicas;
+import com.gamestore.api.JadeGatewayService;
+import com.gamestore.concurrent.VirtualThreads;
+
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.info.Info;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.AgentController;
+import jade.wrapper.StaleProxyException;
+
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+@SpringBootApplication
+public class GameStoreApplication {
+    private static final Logger log = LoggerFactory.getLogger(GameStoreApplication.class);
+    
+    @Autowired
+    private JadeGatewayService jadeGatewayService;
+    
+    // Replicas register with the DF; the gateway spreads requests over them
+    @Value("${gamestore.agents.gamestop-replicas:1}")
+    private int gameStopReplicas;
+    
+    @Value("${gamestore.agents.distributor-replicas:1}")
+    private int distributorReplicas;
+    
+    // Where the main container listens; GameStorePeripheral containers join it there
+    @Value("${gamestore.jade.host:localhost}")
+    private String jadeHost;
+    
+    @Value("${gamestore.jade.port:1100}")
+    private int jadePort;
+
+    public static void main(String[] args) {
+        SpringApplication.run(GameStoreApplication.class, args);
+    }
+    
+    @Bean
+    public OpenAPI customOpenAPI() {
+        return new OpenAPI()
+                .info(new Info()
+                        .title("Game Store API")
+                        .version("1.0")
+                        .description("REST API for GameStop and Distributor Agent Integration"));
+    }
+    
+    // Tomcat hands each request to its own virtual thread instead of the fixed worker pool
+    @Bean
+    @ConditionalOnProperty(name = VirtualThreads.PROPERTY, havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadRequestHandling() {
+        if (!VirtualThreads.isSupported()) {
+            log.warn("Virtual threads requested but not available on Java {}, Tomcat keeps its thread pool",
+                System.getProperty("java.version"));
+            return protocolHandler -> { };
+        }
+        log.info("Tomcat requests will run on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newPerTaskExecutor());
+    }
+    
+    @PostConstruct
+    public void startJadeSystem() {
+        try {
+            // Get a JADE runtime instance
+            Runtime jadeRuntime = Runtime.instance();
+            
+            // Create a default profile
+            Profile profile = new ProfileImpl();
+            profile.setParameter(Profile.MAIN_HOST, jadeHost);
+            profile.setParameter(Profile.MAIN_PORT, String.valueOf(jadePort));
+            
+            // Create the main container
+            AgentContainer container = jadeRuntime.createMainContainer(profile);
+            
+            // Start the agents
+            List<AgentController> replicas = AgentReplicas.create(container, gameStopReplicas, distributorReplicas);
+            
+            AgentController apiGatewayAgent = container.createNewAgent(
+                    "apigateway", 
+                    "com.gamestore.agents.ApiGatewayAgent", 
+                    new Object[]{jadeGatewayService});
+            
+            // Set the gateway agent in the service
+            jadeGatewayService.setGatewayAgent(apiGatewayAgent);
+            
+            // Start the agents
+            for (AgentController replica : replicas) {
+                replica.start();
+            }
+            apiGatewayAgent.start();
+            
+            log.info("JADE agents started in Spring application ({} GameStop, {} Distributor)",
+                gameStopReplicas, distributorReplicas);
+            
+        } catch (StaleProxyException e) {
+            log.error("Error starting JADE agents", e);
+        }
+    }
 }
\ No newline at end of file
@@ -1,48 +1,51 @@
-package com.gamestore;
-
-import jade.core.Profile;
-import jade.core.ProfileImpl;
-import jade.core.Runtime;
-import jade.wrapper.AgentContainer;
-import jade.wrapper.AgentController;
-import jade.wrapper.StaleProxyException;
-
-public class GameStoreMain {
-    public static void main(String[] args) {
-        try {
-            // Get a JADE runtime instance
-            Runtime runtime = Runtime.instance();
-            
-            Profile profile = new ProfileImpl();
-            profile.setParameter(Profile.MAIN_HOST, "localhost");
-            profile.setParameter(Profile.MAIN_PORT, "1100"); 
-            profile.setParameter(Profile.GUI, "true"); // Enable JADE GUI
-            
-            AgentContainer mainContainer = runtime.createMainContainer(profile);
-            
-            // TODO, Try to remove sleep
-            Thread.sleep(1000);
-            
-            AgentController gameStopAgent = mainContainer.createNewAgent(
-                "gamestop", 
-                "com.gamestore.agents.GameStopAgent", 
-                new Object[]{});
-            
-            AgentController distributorAgent = mainContainer.createNewAgent(
-                "distributor", 
-                "com.gamestore.agents.DistributorAgent", 
-                new Object[]{});
-            
-            // Agents start
-            gameStopAgent.start();
-            distributorAgent.start();
-            
-            System.out.println("Game Store system is running...");
-            
-        } catch (StaleProxyException e) {
-            e.printStackTrace();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-    }
+package com.gamestore;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.agents.AgentReplicas;
+
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.AgentController;
+import jade.wrapper.StaleProxyException;
+
+public class GameStoreMain {
+    private static final Logger log = LoggerFactory.getLogger(GameStoreMain.class);
+    
+    public static void main(String[] args) {
+        try {
+            // Get a JADE runtime instance
+            Runtime runtime = Runtime.instance();
+            
+            Profile profile = new ProfileImpl();
+            profile.setParameter(Profile.MAIN_HOST, System.getProperty("gamestore.jade.host", "localhost"));
+            profile.setParameter(Profile.MAIN_PORT, System.getProperty("gamestore.jade.port", "1100")); 
+            profile.setParameter(Profile.GUI, "true"); // Enable JADE GUI
+            
+            AgentContainer mainContainer = runtime.createMainContainer(profile);
+            
+            // TODO, Try to remove sleep
+            Thread.sleep(1000);
+            
+            // One GameStop and one Distributor, under their well-known names
+            List<AgentController> agents = AgentReplicas.create(mainContainer, 1, 1);
+            
+            // Agents start
+            for (AgentController agent : agents) {
+                agent.start();
+            }
+            
+            log.info("Game Store system is running...");
+            
+        } catch (StaleProxyException e) {
+            log.error("Error starting the agents", e);
+        } catch (InterruptedException e) {
+            log.error("Interrupted while starting the platform", e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.gamestore;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.agents.AgentReplicas;
+
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.AgentController;
+import jade.wrapper.ControllerException;
+
+/**
+ * Starts GameStop and Distributor replicas in a peripheral container that joins the
+ * platform of a running GameStoreApplication (or GameStoreMain), from another JVM on
+ * the same host or from another node. The gateway finds the replicas through the DF
+ * and prefers the ones in its own container while those are reachable.
+ * <p>
+ * Configured with system properties:
+ * <ul>
+ * <li>gamestore.jade.host, gamestore.jade.port: the main container (localhost, 1100)</li>
+ * <li>gamestore.jade.local-host: the address other containers reach this one at, when
+ * the default network name will not do</li>
+ * <li>gamestore.jade.container: the container name; the platform assigns one when unset</li>
+ * <li>gamestore.agents.gamestop-replicas, gamestore.agents.distributor-replicas (1 each)</li>
+ * </ul>
+ * Each node reads its own game_db.properties, so gamestore.jdbc.url points the replicas
+ * at that node's SQLite copy.
+ */
+public class GameStorePeripheral {
+    private static final Logger log = LoggerFactory.getLogger(GameStorePeripheral.class);
+    
+    public static void main(String[] args) {
+        String mainHost = System.getProperty("gamestore.jade.host", "localhost");
+        String mainPort = System.getProperty("gamestore.jade.port", "1100");
+        
+        Runtime runtime = Runtime.instance();
+        // Leave when the platform does
+        runtime.setCloseVM(true);
+        
+        Profile profile = new ProfileImpl(false);
+        profile.setParameter(Profile.MAIN_HOST, mainHost);
+        profile.setParameter(Profile.MAIN_PORT, mainPort);
+        String localHost = System.getProperty("gamestore.jade.local-host");
+        if (localHost != null) {
+            profile.setParameter(Profile.LOCAL_HOST, localHost);
+        }
+        String containerName = System.getProperty("gamestore.jade.container");
+        if (containerName != null) {
+            profile.setParameter(Profile.CONTAINER_NAME, containerName);
+        }
+        
+        AgentContainer container = runtime.createAgentContainer(profile);
+        if (container == null) {
+            log.error("Could not join the platform at {}:{}", mainHost, mainPort);
+            System.exit(1);
+        }
+        
+        try {
+            int gameStops = Integer.getInteger("gamestore.agents.gamestop-replicas", 1);
+            int distributors = Integer.getInteger("gamestore.agents.distributor-replicas", 1);
+            String name = container.getContainerName();
+            List<AgentController> agents = AgentReplicas.create(container, name, gameStops, distributors);
+            for (AgentController agent : agents) {
+                agent.start();
+            }
+            
+            log.info("Container {} joined {}:{} with {} GameStop and {} Distributor",
+                name, mainHost, mainPort, gameStops, distributors);
+        
+        } catch (ControllerException e) {
+            log.error("Error starting agents in the peripheral container", e);
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
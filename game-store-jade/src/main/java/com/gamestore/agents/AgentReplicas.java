@@ -0,0 +1,49 @@
+package com.gamestore.agents;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jade.wrapper.AgentContainer;
+import jade.wrapper.AgentController;
+import jade.wrapper.StaleProxyException;
+
+/**
+ * Creates the GameStop and Distributor replicas in a container. The first of each
+ * keeps the well-known local name ("gamestop", "distributor"), which is also where
+ * requests go before the DF has reported any replica; the others are numbered from 2.
+ * Replicas in a peripheral container carry the container's name as well, since local
+ * names are unique across the whole platform.
+ */
+public final class AgentReplicas {
+    
+    private AgentReplicas() {}
+    
+    /** Creates the agents without starting them. */
+    public static List<AgentController> create(AgentContainer container, int gameStops, int distributors)
+            throws StaleProxyException {
+        return create(container, null, gameStops, distributors);
+    }
+    
+    /** Same as create(AgentContainer, int, int) with a qualifier in the names: "gamestop-node2", "gamestop-node2-2", ... */
+    public static List<AgentController> create(AgentContainer container, String qualifier, int gameStops,
+            int distributors) throws StaleProxyException {
+        String gameStop = qualifier != null ? "gamestop-" + qualifier : "gamestop";
+        String distributor = qualifier != null ? "distributor-" + qualifier : "distributor";
+        List<AgentController> agents = new ArrayList<>();
+        for (int i = 1; i <= gameStops; i++) {
+            agents.add(container.createNewAgent(name(gameStop, i),
+                "com.gamestore.agents.GameStopAgent", new Object[]{}));
+        }
+        for (int i = 1; i <= distributors; i++) {
+            // Only the first Distributor of a container keeps the SQLite copy of the ontology in step;
+            // on another node that is a different SQLite file
+            agents.add(container.createNewAgent(name(distributor, i),
+                "com.gamestore.agents.DistributorAgent", new Object[]{i == 1}));
+        }
+        return agents;
+    }
+    
+    static String name(String baseName, int replica) {
+        return replica == 1 ? baseName : baseName + "-" + replica;
+    }
+}
\ No newline at end of file
@@ -1,149 +1,340 @@
-package com.gamestore.agents;
-
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
-
-import com.gamestore.api.JadeGatewayService;
-import com.gamestore.api.JadeGatewayService.SearchGameRequest;
-import com.gamestore.api.JadeGatewayService.GetAllGamesRequest;
-
-import jade.core.Agent;
-import jade.core.AID;
-import jade.core.behaviours.*;
-import jade.lang.acl.ACLMessage;
-import jade.lang.acl.MessageTemplate;
-
-public class ApiGatewayAgent extends Agent {
-    private JadeGatewayService gatewayService;
-    private Queue<Object> objectQueue = new LinkedBlockingQueue<>();
-    
-    protected void setup() {
-        System.out.println("API Gateway Agent " + getLocalName() + " starting.");
-        
-        // Get the gateway service from the arguments
-        Object[] args = getArguments();
-        if (args != null && args.length > 0 && args[0] instanceof JadeGatewayService) {
-            gatewayService = (JadeGatewayService) args[0];
-        } else {
-            System.err.println("API Gateway Agent: JadeGatewayService not provided!");
-            doDelete();
-            return;
-        }
-        
-        // Add behavior to process API requests
-        addBehaviour(new ProcessApiRequests(this));
-        
-        // Add behavior to handle responses - using one unified behavior
-        addBehaviour(new HandleAllResponses());
-        
-        System.out.println("API Gateway Agent ready.");
-    }
-    
-    // !!! This method allows Spring to send objects to the agent
-    public void putO2AObject(Object object, boolean blocking) {
-        objectQueue.add(object);
-        System.out.println("API Gateway Agent: Added object to queue: " + object.getClass().getSimpleName());
-    }
-    
-    private class ProcessApiRequests extends TickerBehaviour {
-        public ProcessApiRequests(Agent agent) {
-            super(agent, 100); // Check every 100ms
-        }
-        
-        @Override
-        protected void onTick() {
-            Object obj = objectQueue.poll();
-            
-            if (obj != null) {
-                System.out.println("API Gateway Agent: Processing request of type: " + obj.getClass().getSimpleName());
-            }
-            
-            if (obj instanceof SearchGameRequest) {
-                SearchGameRequest request = (SearchGameRequest) obj;
-                
-                ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-                msg.addReceiver(new AID("gamestop", AID.ISLOCALNAME));
-                msg.setContent(request.getTitle());
-                msg.setReplyWith(request.getRequestId());
-                myAgent.send(msg);
-                
-                System.out.println("API Gateway Agent: Sent game search request to GameStop: " + request.getTitle());
-                
-            } else if (obj instanceof GetAllGamesRequest) {
-                GetAllGamesRequest request = (GetAllGamesRequest) obj;
-                System.out.println("API Gateway Agent: Processing GetAllGamesRequest with source: " + request.getSource());
-                
-                if ("SQLITE".equals(request.getSource())) {
-                    ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-                    msg.addReceiver(new AID("gamestop", AID.ISLOCALNAME));
-                    msg.setContent("GET_ALL_GAMES_SQLITE");
-                    msg.setReplyWith(request.getRequestId());
-                    myAgent.send(msg);
-                    
-                    System.out.println("API Gateway Agent: Sent get all SQLite games request to GameStop with ID: " + request.getRequestId());
-                    
-                } else if ("ONTOLOGY".equals(request.getSource())) {
-                    ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-                    msg.addReceiver(new AID("distributor", AID.ISLOCALNAME));
-                    msg.setContent("GET_ALL_GAMES_ONTOLOGY");
-                    msg.setReplyWith(request.getRequestId());
-                    myAgent.send(msg);
-                    
-                    System.out.println("API Gateway Agent: Sent get all ontology games request to Distributor with ID: " + request.getRequestId());
-                    
-                } else if ("BOTH".equals(request.getSource())) {
-                    // Send requests to both agents
-                    String sqliteRequestId = request.getRequestId() + "_SQLITE";
-                    String ontologyRequestId = request.getRequestId() + "_ONTOLOGY";
-                    
-                    ACLMessage sqliteMsg = new ACLMessage(ACLMessage.REQUEST);
-                    sqliteMsg.addReceiver(new AID("gamestop", AID.ISLOCALNAME));
-                    sqliteMsg.setContent("GET_ALL_GAMES_SQLITE");
-                    sqliteMsg.setReplyWith(sqliteRequestId);
-                    myAgent.send(sqliteMsg);
-                    
-                    ACLMessage ontologyMsg = new ACLMessage(ACLMessage.REQUEST);
-                    ontologyMsg.addReceiver(new AID("distributor", AID.ISLOCALNAME));
-                    ontologyMsg.setContent("GET_ALL_GAMES_ONTOLOGY");
-                    ontologyMsg.setReplyWith(ontologyRequestId);
-                    myAgent.send(ontologyMsg);
-                    
-                    System.out.println("API Gateway Agent: Sent get all games requests to both agents with IDs: " + sqliteRequestId + ", " + ontologyRequestId);
-                }
-            }
-        }
-    }
-    
-    // Unified response handler
-    private class HandleAllResponses extends CyclicBehaviour {
-        @Override
-        public void action() {
-            MessageTemplate mt = MessageTemplate.MatchPerformative(ACLMessage.INFORM);
-            ACLMessage msg = myAgent.receive(mt);
-            
-            if (msg != null) {
-                String requestId = msg.getInReplyTo();
-                String content = msg.getContent();
-                
-                System.out.println("API Gateway Agent: Received response for request ID: " + requestId);
-                System.out.println("API Gateway Agent: Response content length: " + (content != null ? content.length() : "null"));
-                
-                if (requestId != null && gatewayService != null) {
-                    // Check if this is a get all games response
-                    if (requestId.startsWith("getAllSQLite_") || requestId.startsWith("getAllOntology_") || 
-                        requestId.contains("_SQLITE") || requestId.contains("_ONTOLOGY")) {
-                        
-                        System.out.println("API Gateway Agent: Forwarding get all games response to service");
-                        gatewayService.receiveGetAllGamesResponse(requestId, content);
-                    } else {
-                        // This is a regular game search response
-                        System.out.println("API Gateway Agent: Forwarding game search response to service");
-                        gatewayService.receiveResponse(requestId, content);
-                    }
-                }
-            } else {
-                block();
-            }
-        }
-    }
+package com.gamestore.agents;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.api.GatewayQueue;
+import com.gamestore.api.JadeGatewayService;
+import com.gamestore.api.JadeGatewayService.SearchGameRequest;
+import com.gamestore.api.GameListing;
+import com.gamestore.api.JadeGatewayService.GetAllGamesRequest;
+import com.gamestore.api.JadeGatewayService.StreamControl;
+import com.gamestore.model.GameBinaryCodec;
+
+import jade.core.Agent;
+import jade.core.AID;
+import jade.core.behaviours.*;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+public class ApiGatewayAgent extends Agent {
+    private static final Logger log = LoggerFactory.getLogger(ApiGatewayAgent.class);
+    
+    private JadeGatewayService gatewayService;
+    private volatile GatewayQueue requestQueue;
+    private volatile ProcessApiRequests requestProcessor;
+    
+    // Reply IDs of the catalog scans sent and not yet answered, capped at maxScansInFlight
+    private final Set<String> scansInFlight = new HashSet<>();
+    private int maxScansInFlight;
+    
+    // Searches are routed by title, listings to the least busy replica
+    private ReplicaRouter gameStops;
+    private ReplicaRouter distributors;
+    
+    protected void setup() {
+        log.info("API Gateway Agent {} starting.", getLocalName());
+        
+        // Get the gateway service from the arguments
+        Object[] args = getArguments();
+        if (args != null && args.length > 0 && args[0] instanceof JadeGatewayService) {
+            gatewayService = (JadeGatewayService) args[0];
+            requestQueue = queue();
+            maxScansInFlight = gatewayService.getMaxScansInFlight();
+        } else {
+            log.error("API Gateway Agent: JadeGatewayService not provided!");
+            doDelete();
+            return;
+        }
+        
+        // Follow the GameStop and Distributor replicas registered with the DF
+        gameStops = new ReplicaRouter(this, ReplicaRouter.GAMESTOP_SERVICE, "gamestop");
+        gameStops.start();
+        distributors = new ReplicaRouter(this, ReplicaRouter.DISTRIBUTOR_SERVICE, "distributor");
+        distributors.start();
+        
+        // Add behavior to process API requests; it stays blocked until putO2AObject wakes it up
+        requestProcessor = new ProcessApiRequests();
+        addBehaviour(requestProcessor);
+        
+        // Add behavior to handle responses - using one unified behavior
+        addBehaviour(new HandleAllResponses());
+        
+        log.info("API Gateway Agent ready.");
+    }
+    
+    // Requests can arrive before setup() has run; the queue comes with the agent's arguments, which are already set
+    private GatewayQueue queue() {
+        GatewayQueue queue = requestQueue;
+        if (queue == null) {
+            Object[] args = getArguments();
+            if (args == null || args.length == 0 || !(args[0] instanceof JadeGatewayService)) {
+                throw new IllegalStateException("API Gateway Agent has no JadeGatewayService");
+            }
+            queue = ((JadeGatewayService) args[0]).getRequestQueue();
+            requestQueue = queue;
+        }
+        return queue;
+    }
+    
+    protected void takeDown() {
+        if (gameStops != null) {
+            gameStops.stop();
+            distributors.stop();
+        }
+    }
+    
+    // !!! This method allows Spring to send objects to the agent. A request whose lane is full is
+    // refused with GatewayOverloadedException, unless the caller is blocking and waits for room
+    public void putO2AObject(Object object, boolean blocking) throws InterruptedException {
+        queue().offer(object, blocking);
+        log.debug("API Gateway Agent: Added object to queue: {}", object.getClass().getSimpleName());
+        
+        // Wake the request processor right away instead of waiting for a poll
+        if (requestProcessor != null) {
+            requestProcessor.restart();
+        }
+    }
+    
+    private class ProcessApiRequests extends CyclicBehaviour {
+        @Override
+        public void action() {
+            // Drain everything queued since the last activation, searches first; scans wait for a free slot
+            Object obj;
+            while ((obj = requestQueue.poll(hasScanSlot())) != null) {
+                // Expired or abandoned while queued: sending it would only hold a replica (and a scan slot) for a late reply
+                if (!isStillWanted(obj)) {
+                    requestQueue.drop(obj);
+                    log.debug("API Gateway Agent: Dropped {} that expired in the queue", obj.getClass().getSimpleName());
+                    continue;
+                }
+                log.debug("API Gateway Agent: Processing request of type: {}", obj.getClass().getSimpleName());
+                dispatch(obj);
+            }
+            
+            if (requestQueue.depth(GatewayQueue.Lane.SCAN) > 0) {
+                // A slot also frees up when an unanswered scan is forgotten, which sends no message
+                block(1000);
+            } else {
+                block();
+            }
+            
+            // An object added between the drain and block() would otherwise wait for the next wake-up
+            if (requestQueue.hasReady(hasScanSlot())) {
+                restart();
+            }
+        }
+        
+        private boolean isStillWanted(Object obj) {
+            if (obj instanceof SearchGameRequest) {
+                return gatewayService.isPending(((SearchGameRequest) obj).getRequestId());
+            }
+            if (obj instanceof GetAllGamesRequest) {
+                // Both halves of a BOTH request share one caller and one deadline
+                GetAllGamesRequest request = (GetAllGamesRequest) obj;
+                return (request.getSqliteRequestId() != null && gatewayService.isPending(request.getSqliteRequestId()))
+                    || (request.getOntologyRequestId() != null && gatewayService.isPending(request.getOntologyRequestId()));
+            }
+            // Stream confirmations and cancellations are always passed on
+            return true;
+        }
+        
+        private boolean hasScanSlot() {
+            // Scans the routers have forgotten, after OUTSTANDING_LIFETIME, no longer hold a slot
+            Iterator<String> it = scansInFlight.iterator();
+            while (it.hasNext()) {
+                String requestId = it.next();
+                if (gameStops.replicaFor(requestId) == null && distributors.replicaFor(requestId) == null) {
+                    it.remove();
+                }
+            }
+            requestQueue.setScansInFlight(scansInFlight.size());
+            return maxScansInFlight <= 0 || scansInFlight.size() < maxScansInFlight;
+        }
+        
+        private void dispatch(Object obj) {
+            if (obj instanceof SearchGameRequest) {
+                SearchGameRequest request = (SearchGameRequest) obj;
+                
+                AID gameStop = gameStops.forTitle(request.getTitle());
+                ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+                msg.addReceiver(gameStop);
+                msg.setContent(request.getTitle());
+                msg.setReplyWith(request.getRequestId());
+                myAgent.send(msg);
+                gameStops.sent(gameStop, request.getRequestId(), msg, request.getTitle());
+                
+                log.debug("API Gateway Agent: Sent game search request to GameStop: {}", request.getTitle());
+                
+            } else if (obj instanceof GetAllGamesRequest) {
+                GetAllGamesRequest request = (GetAllGamesRequest) obj;
+                log.debug("API Gateway Agent: Processing GetAllGamesRequest with source: {}", request.getSource());
+                
+                // The envelope carries one reply ID per agent that has to be asked
+                if (request.getSqliteRequestId() != null) {
+                    AID gameStop = gameStops.leastOutstanding();
+                    ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+                    msg.addReceiver(gameStop);
+                    msg.setContent("GET_ALL_GAMES_SQLITE");
+                    msg.setReplyWith(request.getSqliteRequestId());
+                    acceptBinaryListing(msg);
+                    requestChunks(msg, request.getChunkSize());
+                    
+                    // Paging and filters travel as user-defined parameters so the content stays the same
+                    if (request.getQuery() != null) {
+                        for (Map.Entry<String, String> param : request.getQuery().toParameters().entrySet()) {
+                            msg.addUserDefinedParameter(param.getKey(), param.getValue());
+                        }
+                    }
+                    myAgent.send(msg);
+                    gameStops.sent(gameStop, request.getSqliteRequestId(), msg, null);
+                    if (request.getQuery() == null) {
+                        scansInFlight.add(request.getSqliteRequestId());
+                    }
+                    
+                    log.debug("API Gateway Agent: Sent get all SQLite games request to GameStop with ID: {}",
+                        request.getSqliteRequestId());
+                }
+                
+                if (request.getOntologyRequestId() != null) {
+                    AID distributor = distributors.leastOutstanding();
+                    ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+                    msg.addReceiver(distributor);
+                    msg.setContent("GET_ALL_GAMES_ONTOLOGY");
+                    msg.setReplyWith(request.getOntologyRequestId());
+                    acceptBinaryListing(msg);
+                    requestChunks(msg, request.getChunkSize());
+                    myAgent.send(msg);
+                    distributors.sent(distributor, request.getOntologyRequestId(), msg, null);
+                    scansInFlight.add(request.getOntologyRequestId());
+                    
+                    log.debug("API Gateway Agent: Sent get all ontology games request to Distributor with ID: {}",
+                        request.getOntologyRequestId());
+                }
+                
+            } else if (obj instanceof StreamControl) {
+                StreamControl control = (StreamControl) obj;
+                
+                // Chunk confirmations and cancellations go back to the replica that is streaming
+                ReplicaRouter router = control.getSource() == JadeGatewayService.Source.SQLITE ? gameStops : distributors;
+                AID streaming = router.replicaFor(control.getRequestId());
+                if (streaming == null) {
+                    // Already finished, or forgotten after OUTSTANDING_LIFETIME; the agent drops idle streams itself
+                    return;
+                }
+                if (control.isCancel()) {
+                    router.answered(control.getRequestId());
+                }
+                ACLMessage msg = new ACLMessage(control.isCancel() ? ACLMessage.CANCEL : ACLMessage.CONFIRM);
+                msg.addReceiver(streaming);
+                msg.setConversationId(ChunkedListings.CONVERSATION);
+                msg.setInReplyTo(control.getRequestId());
+                if (!control.isCancel()) {
+                    msg.addUserDefinedParameter(ChunkedListings.CHUNK_SEQ_PARAMETER, String.valueOf(control.getSeq()));
+                }
+                myAgent.send(msg);
+            }
+        }
+    }
+    
+    // Asks for the listing as a stream of chunks; without it the agent sends everything in one reply
+    private void requestChunks(ACLMessage msg, int chunkSize) {
+        if (chunkSize > 0) {
+            msg.setConversationId(ChunkedListings.CONVERSATION);
+            msg.addUserDefinedParameter(ChunkedListings.CHUNK_SIZE_PARAMETER, String.valueOf(chunkSize));
+        }
+    }
+    
+    // Offers the binary listing encoding; an agent that doesn't know it just answers with JSON
+    private void acceptBinaryListing(ACLMessage msg) {
+        String accept = gatewayService.getListingEncoding();
+        if (accept != null) {
+            msg.addUserDefinedParameter(GameBinaryCodec.ACCEPT_PARAMETER, accept);
+        }
+    }
+    
+    private void replicaAnswered(String requestId) {
+        if (requestId != null && !gameStops.answered(requestId)) {
+            distributors.answered(requestId);
+        }
+        // A finished scan lets the next queued one go
+        if (requestId != null && scansInFlight.remove(requestId) && requestProcessor != null) {
+            requestProcessor.restart();
+        }
+    }
+    
+    // Unified response handler
+    private class HandleAllResponses extends CyclicBehaviour {
+        @Override
+        public void action() {
+            // DF notifications are left to the replica routers
+            MessageTemplate mt = MessageTemplate.and(
+                MessageTemplate.not(MessageTemplate.MatchSender(getDefaultDF())),
+                MessageTemplate.or(
+                    MessageTemplate.MatchPerformative(ACLMessage.INFORM),
+                    MessageTemplate.or(
+                        MessageTemplate.MatchPerformative(ACLMessage.REFUSE),
+                        MessageTemplate.MatchPerformative(ACLMessage.FAILURE))));
+            ACLMessage msg = myAgent.receive(mt);
+            
+            // A replica that could not be reached, e.g. in a container that died, gets the request resent elsewhere
+            if (msg != null && ReplicaRouter.isUndeliverable(myAgent, msg) && msg.getInReplyTo() != null
+                    && (gameStops.failover(msg.getInReplyTo()) || distributors.failover(msg.getInReplyTo()))) {
+                return;
+            }
+            
+            if (msg != null && msg.getPerformative() != ACLMessage.INFORM) {
+                log.warn("API Gateway Agent: Request {} was not served: {}", msg.getInReplyTo(), msg.getContent());
+                replicaAnswered(msg.getInReplyTo());
+                if (msg.getInReplyTo() != null && gatewayService != null) {
+                    gatewayService.receiveFailure(msg.getInReplyTo(),
+                        msg.getPerformative() == ACLMessage.REFUSE, msg.getContent());
+                }
+            } else if (msg != null) {
+                String requestId = msg.getInReplyTo();
+                log.debug("API Gateway Agent: Received response for request ID: {}", requestId);
+                
+                String seq = msg.getUserDefinedParameter(ChunkedListings.CHUNK_SEQ_PARAMETER);
+                boolean lastChunk = msg.getUserDefinedParameter(ChunkedListings.CHUNK_LAST_PARAMETER) != null;
+                if (seq == null || lastChunk) {
+                    replicaAnswered(requestId);
+                } else if (requestId != null && !gameStops.refresh(requestId)) {
+                    distributors.refresh(requestId);
+                }
+                if (seq != null) {
+                    if (requestId != null && gatewayService != null) {
+                        GameListing chunk = GameBinaryCodec.ENCODING.equals(msg.getEncoding()) && msg.hasByteSequenceContent()
+                            ? GameListing.ofBinary(msg.getByteSequenceContent())
+                            : GameListing.ofJson(msg.getContent());
+                        gatewayService.receiveChunk(requestId, Integer.parseInt(seq), lastChunk, chunk);
+                    }
+                    return;
+                }
+                
+                if (GameBinaryCodec.ENCODING.equals(msg.getEncoding()) && msg.hasByteSequenceContent()) {
+                    byte[] content = msg.getByteSequenceContent();
+                    log.debug("API Gateway Agent: Binary response size: {} bytes", content.length);
+                    if (requestId != null && gatewayService != null) {
+                        gatewayService.receiveReply(requestId, content);
+                    }
+                    return;
+                }
+                
+                String content = msg.getContent();
+                log.debug("API Gateway Agent: Response content length: {}", content != null ? content.length() : "null");
+                
+                if (requestId != null && gatewayService != null) {
+                    // The service looks the ID up in its dispatch table; no parsing of the ID here
+                    gatewayService.receiveReply(requestId, content);
+                }
+            } else {
+                block();
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.gamestore.agents;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.model.Game;
+
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+/**
+ * Sends a listing as a series of bounded chunks instead of one message. Each chunk
+ * is an INFORM carrying its sequence number; the last one carries the end marker.
+ * The requester confirms every chunk once it has written it out, and at most
+ * WINDOW chunks are ever unconfirmed, so a slow HTTP client slows the agent down
+ * instead of piling chunks up in the gateway. A CANCEL stops the stream.
+ */
+class ChunkedListings extends CyclicBehaviour {
+    private static final Logger log = LoggerFactory.getLogger(ChunkedListings.class);
+    
+    static final String CONVERSATION = "listing-stream";
+    static final String CHUNK_SIZE_PARAMETER = "chunk-size";
+    static final String CHUNK_SEQ_PARAMETER = "chunk-seq";
+    static final String CHUNK_LAST_PARAMETER = "chunk-last";
+    
+    static final int WINDOW = 4;
+    
+    // A stream whose requester has stopped confirming chunks is dropped after this long
+    private static final long IDLE_LIMIT_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final long SWEEP_INTERVAL_MILLIS = 5000;
+    
+    /** Produces the chunks of one listing, in order, on the agent thread. */
+    interface ChunkSource {
+        /** Fetches the next chunk and passes it to stream.deliver, or reports stream.fail. */
+        void fetch(Stream stream);
+    }
+    
+    private final Map<String, Stream> streams = new HashMap<>();
+    private final MessageTemplate controlTemplate = MessageTemplate.and(
+        MessageTemplate.MatchConversationId(CONVERSATION),
+        MessageTemplate.or(
+            MessageTemplate.MatchPerformative(ACLMessage.CONFIRM),
+            MessageTemplate.MatchPerformative(ACLMessage.CANCEL)));
+    
+    ChunkedListings(Agent agent) {
+        super(agent);
+    }
+    
+    /** Template for messages this behaviour consumes, so other servers can leave them alone. */
+    static MessageTemplate controlMessages() {
+        return MessageTemplate.MatchConversationId(CONVERSATION);
+    }
+    
+    /** The chunk size a listing request asks for, or 0 when it wants a single reply. */
+    static int requestedChunkSize(ACLMessage request) {
+        String value = request.getUserDefinedParameter(CHUNK_SIZE_PARAMETER);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    void start(ACLMessage request, ChunkSource source) {
+        Stream stream = new Stream(request, source);
+        streams.put(request.getReplyWith(), stream);
+        stream.pump();
+    }
+    
+    @Override
+    public void action() {
+        ACLMessage msg = myAgent.receive(controlTemplate);
+        if (msg == null) {
+            sweepIdle();
+            block(SWEEP_INTERVAL_MILLIS);
+            return;
+        }
+        
+        Stream stream = streams.get(msg.getInReplyTo());
+        if (stream == null) {
+            return;
+        }
+        if (msg.getPerformative() == ACLMessage.CANCEL) {
+            stream.close();
+            return;
+        }
+        try {
+            stream.confirmed(Integer.parseInt(msg.getUserDefinedParameter(CHUNK_SEQ_PARAMETER)));
+        } catch (NumberFormatException e) {
+            // Not a chunk confirmation we sent a sequence number for
+        }
+    }
+    
+    // A dropped stream is failed, so a fetch still running cannot send into it and the requester stops waiting
+    private void sweepIdle() {
+        long now = System.nanoTime();
+        List<Stream> idle = new ArrayList<>();
+        for (Stream stream : streams.values()) {
+            if (now - stream.lastActivity > IDLE_LIMIT_NANOS) {
+                idle.add(stream);
+            }
+        }
+        
+        // fail() removes the stream from the map, so only once the walk over it is done
+        for (Stream stream : idle) {
+            log.debug("{}: dropping idle listing stream {}", myAgent.getLocalName(), stream.request.getReplyWith());
+            stream.fail("Listing stream idle for more than " + TimeUnit.NANOSECONDS.toSeconds(IDLE_LIMIT_NANOS) + " s");
+        }
+    }
+    
+    class Stream {
+        private final ACLMessage request;
+        private final ChunkSource source;
+        private int sent;
+        private int confirmed;
+        private boolean fetching;
+        private boolean finished;
+        private long lastActivity = System.nanoTime();
+        
+        Stream(ACLMessage request, ChunkSource source) {
+            this.request = request;
+            this.source = source;
+        }
+        
+        // Fetches chunks while the window has room
+        void pump() {
+            while (!finished && !fetching && sent - confirmed < WINDOW) {
+                fetching = true;
+                source.fetch(this);
+            }
+        }
+        
+        void deliver(List<Game> games, boolean last) {
+            fetching = false;
+            if (finished) {
+                return;
+            }
+            ACLMessage chunk = request.createReply();
+            chunk.setPerformative(ACLMessage.INFORM);
+            chunk.setInReplyTo(request.getReplyWith());
+            chunk.setConversationId(CONVERSATION);
+            chunk.addUserDefinedParameter(CHUNK_SEQ_PARAMETER, String.valueOf(sent++));
+            if (last) {
+                chunk.addUserDefinedParameter(CHUNK_LAST_PARAMETER, "true");
+            }
+            ListingReplies.setGames(chunk, request, games);
+            myAgent.send(chunk);
+            lastActivity = System.nanoTime();
+            
+            if (last) {
+                close();
+            } else {
+                pump();
+            }
+        }
+        
+        void fail(String reason) {
+            fetching = false;
+            if (finished) {
+                return;
+            }
+            ACLMessage failure = request.createReply();
+            failure.setPerformative(ACLMessage.FAILURE);
+            failure.setInReplyTo(request.getReplyWith());
+            failure.setConversationId(CONVERSATION);
+            failure.setContent(reason);
+            myAgent.send(failure);
+            close();
+        }
+        
+        void confirmed(int seq) {
+            confirmed = Math.max(confirmed, seq + 1);
+            lastActivity = System.nanoTime();
+            pump();
+        }
+        
+        void close() {
+            finished = true;
+            streams.remove(request.getReplyWith());
+        }
+    }
+}
\ No newline at end of file
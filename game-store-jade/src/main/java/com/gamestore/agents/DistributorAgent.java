@@ -1,116 +1,261 @@
-package com.gamestore.agents;
-
-import jade.core.Agent;
-import jade.core.behaviours.*;
-import jade.lang.acl.ACLMessage;
-import jade.lang.acl.MessageTemplate;
-
-import com.gamestore.ontology.OntologyDBConnector;
-import com.gamestore.model.Game;
-import java.util.List;
-import java.util.ArrayList;
-
-public class DistributorAgent extends Agent {
-    private OntologyDBConnector ontologyDB;
-    
-    protected void setup() {
-        System.out.println("Distributor Agent " + getLocalName() + " starting.");
-        
-        // Initialize ontology database connection
-        ontologyDB = new OntologyDBConnector();
-        
-        // Add behavior to handle game search requests
-        addBehaviour(new GameSearchRequestServer());
-        
-     // Add behavior to handle get all games requests
-        addBehaviour(new GetAllGamesRequestServer());
-        
-        System.out.println("Distributor Agent ready.");
-    }
-    
-    protected void takeDown() {
-        // Close ontology connection
-        if (ontologyDB != null) {
-            ontologyDB.close();
-        }
-        System.out.println("Distributor Agent " + getLocalName() + " terminating.");
-    }
-    
-    private class GetAllGamesRequestServer extends CyclicBehaviour {
-        public void action() {
-            // Listen for "GET_ALL_GAMES" requests
-            MessageTemplate mt = MessageTemplate.and(
-                MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
-                MessageTemplate.MatchContent("GET_ALL_GAMES_ONTOLOGY")
-            );
-            ACLMessage msg = myAgent.receive(mt);
-            
-            if (msg != null) {
-                String requestId = msg.getReplyWith();
-                System.out.println("Distributor Agent received get all games request");
-                
-                // Get all games from ontology database
-                List<Game> games = ontologyDB.getAllGames();
-                
-                // Convert games list to JSON array
-                StringBuilder json = new StringBuilder("[");
-                for (int i = 0; i < games.size(); i++) {
-                    if (i > 0) json.append(",");
-                    json.append(games.get(i).toJSON());
-                }
-                json.append("]");
-                
-                // Send response back
-                ACLMessage reply = msg.createReply();
-                reply.setInReplyTo(requestId);
-                reply.setPerformative(ACLMessage.INFORM);
-                reply.setContent(json.toString());
-                myAgent.send(reply);
-                
-                System.out.println("Distributor Agent: Sent " + games.size() + " games from ontology database");
-            } else {
-                block();
-            }
-        }
-    }
-    
-    private class GameSearchRequestServer extends CyclicBehaviour {
-        public void action() {
-            // Listen for search requests, but exclude GET_ALL_GAMES requests
-            MessageTemplate mt = MessageTemplate.and(
-                MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
-                MessageTemplate.not(MessageTemplate.MatchContent("GET_ALL_GAMES_ONTOLOGY"))
-            );
-            ACLMessage msg = myAgent.receive(mt);
-            
-            if (msg != null) {
-                // REQUEST message received
-                String title = msg.getContent();
-                String requestId = msg.getReplyWith();
-                
-                System.out.println("Distributor Agent received search request for: " + title);
-                
-                ACLMessage reply = msg.createReply();
-                reply.setInReplyTo(requestId);
-                reply.setPerformative(ACLMessage.INFORM);
-                
-                // Search the ontology
-                Game game = ontologyDB.findGame(title);
-                
-                if (game != null) {
-                    // Game found in ontology
-                    reply.setContent(game.toJSON());
-                    System.out.println("Distributor Agent found game: " + game.getTitle());
-                } else {
-                    // Game not found
-                    reply.setContent("NOT_FOUND");
-                    System.out.println("Distributor Agent did not find game: " + title);
-                }
-                
-                myAgent.send(reply);
-            } else {
-                block();
-            }
-        }
-    }
+package com.gamestore.agents;
+
+import jade.core.Agent;
+import jade.core.behaviours.*;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.db.DatabaseConfig;
+import com.gamestore.db.RelationalDBConnector;
+import com.gamestore.ontology.OntologyDBConnector;
+import com.gamestore.ontology.OntologySync;
+import com.gamestore.model.Game;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class DistributorAgent extends Agent {
+    private static final Logger log = LoggerFactory.getLogger(DistributorAgent.class);
+    
+    // Gives GameStop time to create the schema and sample data before this agent opens the same database
+    private static final long FIRST_SYNC_DELAY_MILLIS = 2000;
+    
+    private OntologyDBConnector ontologyDB;
+    private OffloadedLookups lookups;
+    private ChunkedListings chunkedListings;
+    
+    // Copy of the ontology's games in GameStop's SQLite store, refreshed in the background
+    private RelationalDBConnector syncTarget;
+    private OntologySync ontologySync;
+    private boolean syncRunning;
+    
+    // Searches still queued or running, by reply-with ID, so a CANCEL can drop them (agent thread only)
+    private final Map<String, Future<?>> inFlightSearches = new HashMap<>();
+    
+    protected void setup() {
+        log.info("Distributor Agent {} starting.", getLocalName());
+        
+        // Initialize ontology database connection
+        ontologyDB = new OntologyDBConnector();
+        DatabaseConfig config = DatabaseConfig.load();
+        
+        // Ontology lookups and syncs run off the agent thread, so a search still queued can be cancelled
+        lookups = OffloadedLookups.forAgent(this, config.getDistributorLookupWorkers(), config.getLookupQueueSize());
+        addBehaviour(lookups);
+        
+        // Large listings can be requested as a stream of chunks
+        chunkedListings = new ChunkedListings(this);
+        addBehaviour(chunkedListings);
+        
+        // Add behavior to handle game search requests
+        addBehaviour(new GameSearchRequestServer());
+        
+     // Add behavior to handle get all games requests
+        addBehaviour(new GetAllGamesRequestServer());
+        
+        // GameStop cancels hedged searches it no longer needs
+        addBehaviour(new SearchCancellationServer());
+        
+        // Let GameStop and the gateway find this replica
+        ReplicaRouter.register(this, ReplicaRouter.DISTRIBUTOR_SERVICE);
+        
+        // One replica is enough to keep SQLite in step; the others are started with false
+        Object[] args = getArguments();
+        boolean syncReplica = args == null || args.length == 0 || !Boolean.FALSE.equals(args[0]);
+        long syncInterval = config.getOntologySyncIntervalMillis();
+        if (syncInterval > 0 && syncReplica) {
+            log.info("Distributor Agent: syncing ontology games into SQLite every {} ms", syncInterval);
+            addBehaviour(new WakerBehaviour(this, FIRST_SYNC_DELAY_MILLIS) {
+                protected void onWake() {
+                    syncOntology();
+                    myAgent.addBehaviour(new TickerBehaviour(myAgent, syncInterval) {
+                        protected void onTick() {
+                            syncOntology();
+                        }
+                    });
+                }
+            });
+        }
+        
+        log.info("Distributor Agent ready.");
+    }
+    
+    protected void takeDown() {
+        ReplicaRouter.deregister(this);
+        if (lookups != null) {
+            lookups.shutdown();
+        }
+        
+        // Close ontology connection
+        if (ontologyDB != null) {
+            ontologyDB.close();
+        }
+        if (syncTarget != null) {
+            log.info("Distributor Agent: {}", ontologySync.summary());
+            syncTarget.close();
+        }
+        log.info("Distributor Agent {} terminating.", getLocalName());
+    }
+    
+    // Runs one sync as a lookup, so it stays off the agent thread when lookups are offloaded
+    private void syncOntology() {
+        if (syncRunning) {
+            return;
+        }
+        if (ontologySync == null) {
+            // A single connection: syncs never overlap
+            syncTarget = new RelationalDBConnector(DatabaseConfig.load().withPoolSize(1));
+            ontologySync = new OntologySync(ontologyDB, syncTarget);
+        }
+        syncRunning = true;
+        lookups.submit(() -> ontologySync.run(), (result, error) -> {
+            syncRunning = false;
+            if (error != null) {
+                log.error("Distributor Agent: ontology sync failed: {}", error.getMessage());
+            } else if (!result.isUnchanged()) {
+                log.info("Distributor Agent: synced ontology into SQLite, {} games written, {} removed in {} ms, lag {} ms",
+                    result.getWritten(), result.getRemoved(), TimeUnit.NANOSECONDS.toMillis(result.getNanos()), result.getLagMillis());
+            }
+        });
+    }
+    
+    private class GetAllGamesRequestServer extends CyclicBehaviour {
+        public void action() {
+            // Listen for "GET_ALL_GAMES" requests
+            MessageTemplate mt = MessageTemplate.and(
+                MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
+                MessageTemplate.MatchContent("GET_ALL_GAMES_ONTOLOGY")
+            );
+            ACLMessage msg = myAgent.receive(mt);
+            
+            if (msg != null) {
+                String requestId = msg.getReplyWith();
+                log.debug("Distributor Agent received get all games request");
+                
+                int chunkSize = ChunkedListings.requestedChunkSize(msg);
+                if (chunkSize > 0) {
+                    log.debug("Distributor Agent: streaming games in chunks of {}", chunkSize);
+                    chunkedListings.start(msg, new SnapshotChunks(chunkSize));
+                    return;
+                }
+                
+                // Get all games from ontology database
+                lookups.submit(() -> ontologyDB.getAllGames(), (games, error) -> {
+                    if (error != null) {
+                        log.error("Distributor Agent: loading all games failed: {}", error.getMessage());
+                        games = new ArrayList<>();
+                    }
+                    
+                    // Send response back in the encoding the gateway asked for
+                    ACLMessage reply = msg.createReply();
+                    reply.setInReplyTo(requestId);
+                    reply.setPerformative(ACLMessage.INFORM);
+                    ListingReplies.setGames(reply, msg, games);
+                    myAgent.send(reply);
+                    
+                    log.debug("Distributor Agent: Sent {} games from ontology database", games.size());
+                });
+            } else {
+                block();
+            }
+        }
+    }
+    
+    private class GameSearchRequestServer extends CyclicBehaviour {
+        public void action() {
+            // Listen for search requests, but exclude GET_ALL_GAMES requests
+            MessageTemplate mt = MessageTemplate.and(
+                MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
+                MessageTemplate.not(MessageTemplate.MatchContent("GET_ALL_GAMES_ONTOLOGY"))
+            );
+            ACLMessage msg = myAgent.receive(mt);
+            
+            if (msg != null) {
+                // REQUEST message received
+                String title = msg.getContent();
+                String requestId = msg.getReplyWith();
+                
+                log.debug("Distributor Agent received search request for: {}", title);
+                
+                // Search the ontology; the answer is handled back on the agent thread
+                Future<?> lookup = lookups.submit(() -> ontologyDB.findGame(title), (game, error) -> {
+                    if (requestId != null) {
+                        inFlightSearches.remove(requestId);
+                    }
+                    if (error != null) {
+                        log.error("Distributor Agent: search for {} failed: {}", title, error.getMessage());
+                    }
+                    
+                    ACLMessage reply = msg.createReply();
+                    reply.setInReplyTo(requestId);
+                    reply.setPerformative(ACLMessage.INFORM);
+                    
+                    if (game != null) {
+                        // Game found in ontology
+                        reply.setContent(game.toJSON());
+                        log.debug("Distributor Agent found game: {}", game.getTitle());
+                    } else {
+                        // Game not found
+                        reply.setContent("NOT_FOUND");
+                        log.debug("Distributor Agent did not find game: {}", title);
+                    }
+                    
+                    myAgent.send(reply);
+                });
+                if (requestId != null && !lookup.isDone()) {
+                    inFlightSearches.put(requestId, lookup);
+                }
+            } else {
+                block();
+            }
+        }
+    }
+    
+    private class SearchCancellationServer extends CyclicBehaviour {
+        public void action() {
+            // Listing streams are cancelled through ChunkedListings
+            MessageTemplate mt = MessageTemplate.and(
+                MessageTemplate.MatchPerformative(ACLMessage.CANCEL),
+                MessageTemplate.not(ChunkedListings.controlMessages())
+            );
+            ACLMessage msg = myAgent.receive(mt);
+            
+            if (msg != null) {
+                // A lookup that has not started yet is dropped without a reply; one already running just finishes
+                Future<?> lookup = inFlightSearches.remove(msg.getInReplyTo());
+                if (lookup != null && lookup.cancel(false)) {
+                    log.debug("Distributor Agent: cancelled search {}", msg.getInReplyTo());
+                }
+            } else {
+                block();
+            }
+        }
+    }
+    
+    // The ontology catalog is already materialized; chunks are views over it
+    private class SnapshotChunks implements ChunkedListings.ChunkSource {
+        private final int chunkSize;
+        private List<Game> games;
+        private int next;
+        
+        SnapshotChunks(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+        
+        public void fetch(ChunkedListings.Stream stream) {
+            if (games == null) {
+                games = ontologyDB.getAllGames();
+            }
+            int end = Math.min(games.size(), next + chunkSize);
+            List<Game> chunk = games.subList(next, end);
+            next = end;
+            stream.deliver(chunk, next >= games.size());
+        }
+    }
 }
\ No newline at end of file
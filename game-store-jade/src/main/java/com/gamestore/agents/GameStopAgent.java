@@ -1,169 +1,598 @@
-package com.gamestore.agents;
-
-import jade.core.Agent;
-import jade.core.AID;
-import jade.core.behaviours.*;
-import jade.lang.acl.ACLMessage;
-import jade.lang.acl.MessageTemplate;
-
-import com.gamestore.db.RelationalDBConnector;
-import com.gamestore.model.Game;
-import java.util.List;
-import java.util.ArrayList;
-public class GameStopAgent extends Agent {
-    private RelationalDBConnector dbConnector;
-    
-    protected void setup() {
-        System.out.println("GameStop Agent " + getLocalName() + " starting.");
-        
-        // Initialize database connection
-        dbConnector = new RelationalDBConnector();
-        
-        // Add behavior to handle game search requests
-        addBehaviour(new GameSearchRequestServer());
-        
-        // Add behavior to handle get all games requests
-        addBehaviour(new GetAllGamesRequestServer());
-        
-        System.out.println("GameStop Agent ready.");
-    }
-    
-    protected void takeDown() {
-        // Close database connection
-        if (dbConnector != null) {
-            dbConnector.close();
-        }
-        System.out.println("GameStop Agent " + getLocalName() + " terminating.");
-    }
-    
-    private class GameSearchRequestServer extends CyclicBehaviour {
-        public void action() {
-            // Listen for search requests, but exclude GET_ALL_GAMES requests
-            MessageTemplate mt = MessageTemplate.and(
-                MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
-                MessageTemplate.not(MessageTemplate.MatchContent("GET_ALL_GAMES_SQLITE"))
-            );
-            ACLMessage msg = myAgent.receive(mt);
-            
-            if (msg != null) {
-                // REQUEST message received
-                String title = msg.getContent();
-                String requestId = msg.getReplyWith();
-                
-                System.out.println("GameStop Agent received search request for: " + title);
-                
-                // Search the database
-                Game game = dbConnector.findGame(title);
-                
-                if (game != null) {
-                    // Game found in local database - respond immediately
-                    ACLMessage reply = msg.createReply();
-                    reply.setInReplyTo(requestId);
-                    reply.setPerformative(ACLMessage.INFORM);
-                    reply.setContent(game.toJSON());
-                    myAgent.send(reply);
-                    System.out.println("GameStop Agent found game: " + game.getTitle());
-                } else {
-                    // Game not found, ask distributor and wait for response
-                    System.out.println("GameStop Agent did not find game in local DB, asking Distributor...");
-                    addBehaviour(new AskDistributorAndWaitForReply(msg));
-                }
-            } else {
-                block();
-            }
-        }
-    }
-    
-    private class GetAllGamesRequestServer extends CyclicBehaviour {
-        public void action() {
-            // Listen for "GET_ALL_GAMES" requests
-            MessageTemplate mt = MessageTemplate.and(
-                MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
-                MessageTemplate.MatchContent("GET_ALL_GAMES_SQLITE")
-            );
-            ACLMessage msg = myAgent.receive(mt);
-            
-            if (msg != null) {
-                String requestId = msg.getReplyWith();
-                System.out.println("GameStop Agent received get all games request");
-                
-                // Get all games from SQLite database
-                List<Game> games = dbConnector.getAllGames();
-                
-                // Convert games list to JSON array
-                StringBuilder json = new StringBuilder("[");
-                for (int i = 0; i < games.size(); i++) {
-                    if (i > 0) json.append(",");
-                    json.append(games.get(i).toJSON());
-                }
-                json.append("]");
-                
-                // Send response back
-                ACLMessage reply = msg.createReply();
-                reply.setInReplyTo(requestId);
-                reply.setPerformative(ACLMessage.INFORM);
-                reply.setContent(json.toString());
-                myAgent.send(reply);
-                
-                System.out.println("GameStop Agent: Sent " + games.size() + " games from SQLite database");
-            } else {
-                block();
-            }
-        }
-    }
-    
-    private class AskDistributorAndWaitForReply extends Behaviour {
-        private ACLMessage originalRequest;
-        private String distributorRequestId;
-        private boolean responseReceived = false;
-        private int step = 0;
-        
-        public AskDistributorAndWaitForReply(ACLMessage originalRequest) {
-            this.originalRequest = originalRequest;
-            this.distributorRequestId = "dist_" + originalRequest.getReplyWith();
-        }
-        
-        public void action() {
-            switch (step) {
-                case 0:
-                    // Send request to distributor
-                    ACLMessage distributorMsg = new ACLMessage(ACLMessage.REQUEST);
-                    distributorMsg.addReceiver(new AID("distributor", AID.ISLOCALNAME));
-                    distributorMsg.setContent(originalRequest.getContent());
-                    distributorMsg.setReplyWith(distributorRequestId);
-                    myAgent.send(distributorMsg);
-                    step = 1;
-                    break;
-                    
-                case 1:
-                    // Wait for distributor's response
-                    MessageTemplate mt = MessageTemplate.MatchInReplyTo(distributorRequestId);
-                    ACLMessage distributorReply = myAgent.receive(mt);
-                    
-                    if (distributorReply != null) {
-                        // Got response from distributor, forward to API Gateway
-                        ACLMessage reply = originalRequest.createReply();
-                        reply.setInReplyTo(originalRequest.getReplyWith());
-                        reply.setPerformative(ACLMessage.INFORM);
-                        reply.setContent(distributorReply.getContent());
-                        myAgent.send(reply);
-                        
-                        if (!distributorReply.getContent().equals("NOT_FOUND")) {
-                            System.out.println("GameStop Agent: Distributor found the game");
-                        } else {
-                            System.out.println("GameStop Agent: Game not found in either database");
-                        }
-                        
-                        responseReceived = true;
-                    } else {
-                        block();
-                    }
-                    break;
-            }
-        }
-        
-        public boolean done() {
-            return responseReceived;
-        }
-    }
+package com.gamestore.agents;
+
+import jade.core.Agent;
+import jade.core.AID;
+import jade.core.behaviours.*;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.db.DatabaseConfig;
+import com.gamestore.db.RelationalDBConnector;
+import com.gamestore.metrics.GameStoreMetrics;
+import com.gamestore.model.Game;
+import com.gamestore.model.GameQuery;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+public class GameStopAgent extends Agent {
+    private static final Logger log = LoggerFactory.getLogger(GameStopAgent.class);
+    
+    private static final String HEDGED_SEARCH_CONVERSATION = "gamestop-hedged-search";
+    
+    // A hedged search whose Distributor never answers is dropped after this long
+    private static final long HEDGED_SEARCH_LIFETIME_MILLIS = 30000;
+    
+    private enum HedgeMode { OFF, PARALLEL, ADAPTIVE }
+    
+    private RelationalDBConnector dbConnector;
+    private OffloadedLookups lookups;
+    private ChunkedListings chunkedListings;
+    
+    // Distributor replicas, picked by title so each title keeps hitting the same one
+    private ReplicaRouter distributors;
+    private LookupCache lookupCache;
+    
+    private HedgeMode hedgeMode = HedgeMode.OFF;
+    private long hedgeMinDelayMillis;
+    private long hedgeMaxDelayMillis;
+    private final LatencyWindow localSearchLatency = new LatencyWindow(256);
+    
+    // Hedged searches still waiting on a branch, keyed by the ID sent to the Distributor (agent thread only)
+    private final Map<String, HedgedSearch> hedgedSearches = new HashMap<>();
+    private long hedgesSent;
+    private long distributorWins;
+    
+    protected void setup() {
+        log.info("GameStop Agent {} starting.", getLocalName());
+        
+        // Initialize database connection
+        DatabaseConfig config = DatabaseConfig.load();
+        dbConnector = new RelationalDBConnector(config);
+        
+        // Database lookups run on a bounded worker pool sized to the connection pool,
+        // or on virtual threads when gamestore.threads.virtual is set
+        lookups = OffloadedLookups.forAgent(this, config.getLookupWorkers(), config.getLookupQueueSize());
+        addBehaviour(lookups);
+        
+        // Large listings can be requested as a stream of chunks
+        chunkedListings = new ChunkedListings(this);
+        addBehaviour(chunkedListings);
+        
+        // Let gateways find this replica, and follow the Distributor replicas
+        ReplicaRouter.register(this, ReplicaRouter.GAMESTOP_SERVICE);
+        distributors = new ReplicaRouter(this, ReplicaRouter.DISTRIBUTOR_SERVICE, "distributor");
+        distributors.start();
+        lookupCache = new LookupCache(config.getLookupCacheSize(), config.getLookupCacheTtlMillis());
+        GameStoreMetrics.cacheGets("lookup", getLocalName(), lookupCache, LookupCache::getHits, LookupCache::getMisses);
+        
+        hedgeMode = parseHedgeMode(config.getSearchHedge());
+        hedgeMinDelayMillis = config.getHedgeMinDelayMillis();
+        hedgeMaxDelayMillis = Math.max(hedgeMinDelayMillis, config.getHedgeMaxDelayMillis());
+        if (hedgeMode != HedgeMode.OFF) {
+            log.info("GameStop Agent: hedged searches enabled ({})", hedgeMode.name().toLowerCase());
+            addBehaviour(new HedgedReplyServer());
+            addBehaviour(new HedgedSearchSweeper(this, HEDGED_SEARCH_LIFETIME_MILLIS));
+        }
+        
+        // Add behavior to handle game search requests
+        addBehaviour(new GameSearchRequestServer());
+        
+        // Add behavior to handle get all games requests
+        addBehaviour(new GetAllGamesRequestServer());
+        
+        log.info("GameStop Agent ready.");
+    }
+    
+    protected void takeDown() {
+        ReplicaRouter.deregister(this);
+        if (distributors != null) {
+            distributors.stop();
+        }
+        if (lookups != null) {
+            lookups.shutdown();
+        }
+        if (lookupCache != null && lookupCache.isEnabled()) {
+            log.info("GameStop Agent: lookup cache {} hits, {} misses", lookupCache.getHits(), lookupCache.getMisses());
+        }
+        if (hedgeMode != HedgeMode.OFF) {
+            log.info("GameStop Agent: {} Distributor requests sent before the local lookup finished, {} of them answered first",
+                hedgesSent, distributorWins);
+        }
+        
+        // Close database connection
+        if (dbConnector != null) {
+            dbConnector.close();
+        }
+        log.info("GameStop Agent {} terminating.", getLocalName());
+    }
+    
+    private class GameSearchRequestServer extends CyclicBehaviour {
+        public void action() {
+            // Listen for search requests, but exclude GET_ALL_GAMES requests
+            MessageTemplate mt = MessageTemplate.and(
+                MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
+                MessageTemplate.not(MessageTemplate.MatchContent("GET_ALL_GAMES_SQLITE"))
+            );
+            ACLMessage msg = myAgent.receive(mt);
+            
+            if (msg != null) {
+                // REQUEST message received
+                String title = msg.getContent();
+                String requestId = msg.getReplyWith();
+                
+                log.debug("GameStop Agent received search request for: {}", title);
+                
+                // Gateways route a title to the same replica every time, so repeat searches end here
+                String cached = lookupCache.get(title);
+                if (cached != null) {
+                    ACLMessage reply = msg.createReply();
+                    reply.setInReplyTo(requestId);
+                    reply.setPerformative(ACLMessage.INFORM);
+                    reply.setContent(cached);
+                    myAgent.send(reply);
+                    return;
+                }
+                
+                if (hedgeMode != HedgeMode.OFF) {
+                    new HedgedSearch(msg).start();
+                    return;
+                }
+                
+                // Search the database; the answer is handled back on the agent thread
+                lookups.submit(() -> dbConnector.findGame(title), (game, error) -> {
+                    if (error != null) {
+                        log.error("GameStop Agent: search for {} failed: {}", title, error.getMessage());
+                    }
+                    
+                    if (game != null) {
+                        // Game found in local database - respond immediately
+                        String json = game.toJSON();
+                        lookupCache.put(title, json);
+                        ACLMessage reply = msg.createReply();
+                        reply.setInReplyTo(requestId);
+                        reply.setPerformative(ACLMessage.INFORM);
+                        reply.setContent(json);
+                        myAgent.send(reply);
+                        log.debug("GameStop Agent found game: {}", game.getTitle());
+                    } else {
+                        // Game not found, ask distributor and wait for response
+                        log.debug("GameStop Agent did not find game in local DB, asking Distributor...");
+                        addBehaviour(new AskDistributorAndWaitForReply(msg));
+                    }
+                });
+            } else {
+                block();
+            }
+        }
+    }
+    
+    private class GetAllGamesRequestServer extends CyclicBehaviour {
+        public void action() {
+            // Listen for "GET_ALL_GAMES" requests
+            MessageTemplate mt = MessageTemplate.and(
+                MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
+                MessageTemplate.MatchContent("GET_ALL_GAMES_SQLITE")
+            );
+            ACLMessage msg = myAgent.receive(mt);
+            
+            if (msg != null) {
+                String requestId = msg.getReplyWith();
+                log.debug("GameStop Agent received get all games request");
+                
+                // A request with query parameters asks for one filtered page
+                GameQuery query;
+                try {
+                    query = GameQuery.fromParameters(msg::getUserDefinedParameter);
+                } catch (IllegalArgumentException e) {
+                    ACLMessage refusal = msg.createReply();
+                    refusal.setInReplyTo(requestId);
+                    refusal.setPerformative(ACLMessage.REFUSE);
+                    refusal.setContent(e.getMessage());
+                    myAgent.send(refusal);
+                    return;
+                }
+                
+                int chunkSize = ChunkedListings.requestedChunkSize(msg);
+                if (chunkSize > 0) {
+                    log.debug("GameStop Agent: streaming games in chunks of {}", chunkSize);
+                    chunkedListings.start(msg, new CatalogChunks(msg, query, chunkSize));
+                    return;
+                }
+                if (query != null) {
+                    lookups.submit(() -> dbConnector.findGames(query), (page, error) -> {
+                        if (error != null) {
+                            // The gateway forwards FAILURE to the caller rather than serving an empty page
+                            log.error("GameStop Agent: loading games page failed: {}", error.getMessage());
+                            ACLMessage failure = msg.createReply();
+                            failure.setInReplyTo(requestId);
+                            failure.setPerformative(ACLMessage.FAILURE);
+                            failure.setContent("Loading games page failed: " + error.getMessage());
+                            myAgent.send(failure);
+                            return;
+                        }
+                        
+                        ACLMessage reply = msg.createReply();
+                        reply.setInReplyTo(requestId);
+                        reply.setPerformative(ACLMessage.INFORM);
+                        ListingReplies.setPage(reply, msg, page);
+                        myAgent.send(reply);
+                        
+                        log.debug("GameStop Agent: Sent page of {} games from SQLite database", page.getGames().size());
+                    });
+                    return;
+                }
+                
+                // Get all games from SQLite database
+                lookups.submit(() -> dbConnector.getAllGames(), (games, error) -> {
+                    if (error != null) {
+                        log.error("GameStop Agent: loading all games failed: {}", error.getMessage());
+                        games = new ArrayList<>();
+                    }
+                    
+                    // Send response back in the encoding the gateway asked for
+                    ACLMessage reply = msg.createReply();
+                    reply.setInReplyTo(requestId);
+                    reply.setPerformative(ACLMessage.INFORM);
+                    ListingReplies.setGames(reply, msg, games);
+                    myAgent.send(reply);
+                    
+                    log.debug("GameStop Agent: Sent {} games from SQLite database", games.size());
+                });
+            } else {
+                block();
+            }
+        }
+    }
+    
+    // Walks the catalog one keyset page per chunk, so only one chunk is in memory at a time
+    private class CatalogChunks implements ChunkedListings.ChunkSource {
+        private final ACLMessage request;
+        private final int chunkSize;
+        private String cursor;
+        
+        CatalogChunks(ACLMessage request, GameQuery query, int chunkSize) {
+            this.request = request;
+            this.chunkSize = chunkSize;
+            this.cursor = query != null ? query.getCursor() : null;
+        }
+        
+        public void fetch(ChunkedListings.Stream stream) {
+            // Filters and sort come from the request; limit and cursor move with the stream
+            GameQuery parsed = GameQuery.fromParameters(request::getUserDefinedParameter);
+            GameQuery page = (parsed != null ? parsed : new GameQuery()).limit(chunkSize).cursor(cursor);
+            
+            lookups.submit(() -> dbConnector.findGames(page), (result, error) -> {
+                if (error != null) {
+                    log.error("GameStop Agent: loading games chunk failed: {}", error.getMessage());
+                    stream.fail("Loading games failed: " + error.getMessage());
+                    return;
+                }
+                cursor = result.getNextCursor();
+                stream.deliver(result.getGames(), cursor == null);
+            });
+        }
+    }
+    
+    private class AskDistributorAndWaitForReply extends Behaviour {
+        private ACLMessage originalRequest;
+        private String distributorRequestId;
+        private AID distributor;
+        private long askedAt;
+        private boolean responseReceived = false;
+        private int step = 0;
+        
+        public AskDistributorAndWaitForReply(ACLMessage originalRequest) {
+            this.originalRequest = originalRequest;
+            this.distributorRequestId = "dist_" + originalRequest.getReplyWith();
+        }
+        
+        public void action() {
+            switch (step) {
+                case 0:
+                    // Send request to distributor
+                    distributor = distributors.forTitle(originalRequest.getContent());
+                    ACLMessage distributorMsg = new ACLMessage(ACLMessage.REQUEST);
+                    distributorMsg.addReceiver(distributor);
+                    distributorMsg.setContent(originalRequest.getContent());
+                    distributorMsg.setReplyWith(distributorRequestId);
+                    myAgent.send(distributorMsg);
+                    askedAt = System.nanoTime();
+                    step = 1;
+                    break;
+                    
+                case 1:
+                    // Wait for distributor's response
+                    MessageTemplate mt = MessageTemplate.MatchInReplyTo(distributorRequestId);
+                    ACLMessage distributorReply = myAgent.receive(mt);
+                    
+                    if (distributorReply != null && ReplicaRouter.isUndeliverable(myAgent, distributorReply)) {
+                        // That Distributor is gone; ask the next one, or report the failure once none is left
+                        distributors.suspend(distributor);
+                        if (!distributors.forTitle(originalRequest.getContent()).equals(distributor)) {
+                            step = 0;
+                            break;
+                        }
+                        ACLMessage failure = originalRequest.createReply();
+                        failure.setInReplyTo(originalRequest.getReplyWith());
+                        failure.setPerformative(ACLMessage.FAILURE);
+                        failure.setContent("No Distributor reachable");
+                        myAgent.send(failure);
+                        responseReceived = true;
+                    } else if (distributorReply != null) {
+                        distributors.recordRoundTrip(distributor, askedAt);
+                        
+                        // Got response from distributor, forward to API Gateway
+                        ACLMessage reply = originalRequest.createReply();
+                        reply.setInReplyTo(originalRequest.getReplyWith());
+                        reply.setPerformative(ACLMessage.INFORM);
+                        reply.setContent(distributorReply.getContent());
+                        myAgent.send(reply);
+                        
+                        if (!distributorReply.getContent().equals("NOT_FOUND")) {
+                            lookupCache.put(originalRequest.getContent(), distributorReply.getContent());
+                            log.debug("GameStop Agent: Distributor found the game");
+                        } else {
+                            log.debug("GameStop Agent: Game not found in either database");
+                        }
+                        
+                        responseReceived = true;
+                    } else {
+                        block();
+                    }
+                    break;
+            }
+        }
+        
+        public boolean done() {
+            return responseReceived;
+        }
+    }
+    
+    private static HedgeMode parseHedgeMode(String value) {
+        try {
+            return HedgeMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("GameStop Agent: unknown search.hedge value '{}', hedging disabled", value);
+            return HedgeMode.OFF;
+        }
+    }
+    
+    // How long to give the local lookup before asking the Distributor as well
+    private long hedgeDelayMillis() {
+        long p95 = localSearchLatency.p95Nanos();
+        if (p95 < 0) {
+            return hedgeMaxDelayMillis;
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(p95 + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+        return Math.min(hedgeMaxDelayMillis, Math.max(hedgeMinDelayMillis, millis));
+    }
+    
+    /**
+     * One title search that may run against SQLite and the Distributor at the same time.
+     * The first hit is forwarded to the API Gateway and the other branch is cancelled;
+     * NOT_FOUND is only sent once both branches have missed. All methods run on the agent thread.
+     */
+    private class HedgedSearch {
+        private final ACLMessage originalRequest;
+        private final String distributorRequestId;
+        private final long startedAt = System.nanoTime();
+        private Future<?> localLookup;
+        private WakerBehaviour hedgeTimer;
+        private AID distributor;
+        private long askedAt;
+        private boolean localMissed;
+        private boolean distributorAsked;
+        private boolean distributorMissed;
+        private boolean distributorUnreachable;
+        private boolean answered;
+        
+        HedgedSearch(ACLMessage originalRequest) {
+            this.originalRequest = originalRequest;
+            this.distributorRequestId = "dist_" + originalRequest.getReplyWith();
+        }
+        
+        void start() {
+            // Ask the Distributor first in parallel mode, so it works even while an inline lookup holds this thread
+            if (hedgeMode == HedgeMode.PARALLEL) {
+                askDistributor();
+            }
+            
+            String title = originalRequest.getContent();
+            localLookup = lookups.submit(() -> dbConnector.findGame(title), (game, error) -> {
+                localSearchLatency.record(System.nanoTime() - startedAt);
+                if (error != null) {
+                    log.error("GameStop Agent: search for {} failed: {}", title, error.getMessage());
+                }
+                onLocalResult(game);
+            });
+            
+            if (hedgeMode == HedgeMode.ADAPTIVE && !answered && !localMissed) {
+                hedgeTimer = new WakerBehaviour(GameStopAgent.this, hedgeDelayMillis()) {
+                    protected void onWake() {
+                        hedgeTimer = null;
+                        if (!answered && !distributorAsked) {
+                            askDistributor();
+                        }
+                    }
+                };
+                addBehaviour(hedgeTimer);
+            }
+        }
+        
+        private void askDistributor() {
+            if (!localMissed && !distributorAsked) {
+                hedgesSent++;
+            }
+            distributorAsked = true;
+            hedgedSearches.put(distributorRequestId, this);
+            distributor = distributors.forTitle(originalRequest.getContent());
+            
+            ACLMessage distributorMsg = new ACLMessage(ACLMessage.REQUEST);
+            distributorMsg.addReceiver(distributor);
+            distributorMsg.setContent(originalRequest.getContent());
+            distributorMsg.setReplyWith(distributorRequestId);
+            distributorMsg.setConversationId(HEDGED_SEARCH_CONVERSATION);
+            send(distributorMsg);
+            askedAt = System.nanoTime();
+        }
+        
+        void onLocalResult(Game game) {
+            if (answered) {
+                return;
+            }
+            if (game != null) {
+                log.debug("GameStop Agent found game: {}", game.getTitle());
+                answer(game.toJSON());
+            } else if (!distributorAsked) {
+                // A plain miss before the hedge went out: fall back to the Distributor right away
+                localMissed = true;
+                log.debug("GameStop Agent did not find game in local DB, asking Distributor...");
+                askDistributor();
+            } else {
+                localMissed = true;
+                if (distributorUnreachable) {
+                    fail("No Distributor reachable");
+                } else if (distributorMissed) {
+                    answer("NOT_FOUND");
+                }
+            }
+        }
+        
+        void onDistributorReply(String content) {
+            hedgedSearches.remove(distributorRequestId);
+            distributors.recordRoundTrip(distributor, askedAt);
+            if (answered) {
+                return;
+            }
+            if (!"NOT_FOUND".equals(content)) {
+                log.debug("GameStop Agent: Distributor found the game");
+                if (!localMissed) {
+                    distributorWins++;
+                }
+                answer(content);
+            } else {
+                distributorMissed = true;
+                if (localMissed) {
+                    log.debug("GameStop Agent: Game not found in either database");
+                    answer("NOT_FOUND");
+                }
+            }
+        }
+        
+        // The Distributor asked could not be reached: ask the next one, or fail once none is left and SQLite missed too
+        void onDistributorUnreachable() {
+            hedgedSearches.remove(distributorRequestId);
+            distributors.suspend(distributor);
+            if (answered) {
+                return;
+            }
+            if (!distributors.forTitle(originalRequest.getContent()).equals(distributor)) {
+                askDistributor();
+                return;
+            }
+            distributorUnreachable = true;
+            if (localMissed) {
+                fail("No Distributor reachable");
+            }
+        }
+        
+        private void fail(String reason) {
+            answered = true;
+            ACLMessage failure = originalRequest.createReply();
+            failure.setInReplyTo(originalRequest.getReplyWith());
+            failure.setPerformative(ACLMessage.FAILURE);
+            failure.setContent(reason);
+            send(failure);
+            cancelPending();
+        }
+        
+        private void answer(String content) {
+            answered = true;
+            if (!"NOT_FOUND".equals(content)) {
+                lookupCache.put(originalRequest.getContent(), content);
+            }
+            ACLMessage reply = originalRequest.createReply();
+            reply.setInReplyTo(originalRequest.getReplyWith());
+            reply.setPerformative(ACLMessage.INFORM);
+            reply.setContent(content);
+            send(reply);
+            cancelPending();
+        }
+        
+        // Stops whichever branch is still outstanding once the answer is known
+        void cancelPending() {
+            if (hedgeTimer != null) {
+                removeBehaviour(hedgeTimer);
+                hedgeTimer = null;
+            }
+            if (localLookup != null) {
+                localLookup.cancel(false);
+            }
+            if (hedgedSearches.remove(distributorRequestId) != null) {
+                // The Distributor drops the search if it is still queued for a lookup worker;
+                // any answer that still arrives is dropped by HedgedReplyServer
+                ACLMessage cancel = new ACLMessage(ACLMessage.CANCEL);
+                cancel.addReceiver(distributor);
+                cancel.setConversationId(HEDGED_SEARCH_CONVERSATION);
+                cancel.setInReplyTo(distributorRequestId);
+                send(cancel);
+            }
+        }
+        
+        boolean isOlderThan(long nanos, long now) {
+            return now - startedAt > nanos;
+        }
+    }
+    
+    // Routes Distributor answers to their hedged search; answers to cancelled searches are dropped here
+    private class HedgedReplyServer extends CyclicBehaviour {
+        public void action() {
+            MessageTemplate mt = MessageTemplate.and(
+                MessageTemplate.MatchConversationId(HEDGED_SEARCH_CONVERSATION),
+                MessageTemplate.or(
+                    MessageTemplate.MatchPerformative(ACLMessage.INFORM),
+                    MessageTemplate.MatchPerformative(ACLMessage.FAILURE))
+            );
+            ACLMessage msg = myAgent.receive(mt);
+            
+            if (msg != null) {
+                HedgedSearch search = hedgedSearches.get(msg.getInReplyTo());
+                if (search == null) {
+                    return;
+                }
+                if (ReplicaRouter.isUndeliverable(myAgent, msg)) {
+                    search.onDistributorUnreachable();
+                } else if (msg.getPerformative() == ACLMessage.INFORM) {
+                    search.onDistributorReply(msg.getContent());
+                }
+            } else {
+                block();
+            }
+        }
+    }
+    
+    // Forgets hedged searches the Distributor never answered; the gateway has timed them out by then
+    private class HedgedSearchSweeper extends TickerBehaviour {
+        HedgedSearchSweeper(Agent agent, long periodMillis) {
+            super(agent, periodMillis);
+        }
+        
+        protected void onTick() {
+            long now = System.nanoTime();
+            long lifetime = TimeUnit.MILLISECONDS.toNanos(HEDGED_SEARCH_LIFETIME_MILLIS);
+            Iterator<HedgedSearch> it = hedgedSearches.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().isOlderThan(lifetime, now)) {
+                    it.remove();
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
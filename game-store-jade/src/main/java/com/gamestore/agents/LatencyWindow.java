@@ -0,0 +1,48 @@
+package com.gamestore.agents;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window over the most recent latency samples of one operation, used to
+ * pick the hedging delay. Only the owning agent thread records and reads it.
+ */
+class LatencyWindow {
+    private static final int MIN_SAMPLES = 20;
+    
+    // Sorting the window is cheap, but there is no need to do it on every sample
+    private static final int RECOMPUTE_EVERY = 16;
+    
+    private final long[] samples;
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private long p95Nanos = -1;
+    
+    LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+    
+    void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceRecompute >= RECOMPUTE_EVERY || p95Nanos < 0) {
+            sinceRecompute = 0;
+            p95Nanos = count < MIN_SAMPLES ? -1 : percentile(0.95);
+        }
+    }
+    
+    /** The 95th percentile in nanoseconds, or -1 while there are too few samples to tell. */
+    long p95Nanos() {
+        return p95Nanos;
+    }
+    
+    private long percentile(double fraction) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
\ No newline at end of file
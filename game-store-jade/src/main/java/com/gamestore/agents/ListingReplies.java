@@ -0,0 +1,40 @@
+package com.gamestore.agents;
+
+import java.util.List;
+
+import com.gamestore.model.Game;
+import com.gamestore.model.GameBinaryCodec;
+import com.gamestore.model.GameJsonWriter;
+import com.gamestore.model.GamePage;
+
+import jade.lang.acl.ACLMessage;
+
+/**
+ * Fills in the content of a listing reply in the encoding the requester asked for.
+ * A request carrying GameBinaryCodec.ACCEPT_PARAMETER gets a binary byte-sequence
+ * reply marked with GameBinaryCodec.ENCODING; any other request gets JSON text.
+ */
+final class ListingReplies {
+    
+    private ListingReplies() {}
+    
+    static void setGames(ACLMessage reply, ACLMessage request, List<Game> games) {
+        String accept = request.getUserDefinedParameter(GameBinaryCodec.ACCEPT_PARAMETER);
+        if (GameBinaryCodec.isAccepted(accept)) {
+            reply.setByteSequenceContent(GameBinaryCodec.encode(games, GameBinaryCodec.isCompressionAccepted(accept)));
+            reply.setEncoding(GameBinaryCodec.ENCODING);
+        } else {
+            reply.setContent(GameJsonWriter.toJsonArray(games));
+        }
+    }
+    
+    static void setPage(ACLMessage reply, ACLMessage request, GamePage page) {
+        String accept = request.getUserDefinedParameter(GameBinaryCodec.ACCEPT_PARAMETER);
+        if (GameBinaryCodec.isAccepted(accept)) {
+            reply.setByteSequenceContent(GameBinaryCodec.encodePage(page, GameBinaryCodec.isCompressionAccepted(accept)));
+            reply.setEncoding(GameBinaryCodec.ENCODING);
+        } else {
+            reply.setContent(GameJsonWriter.toJsonPage(page));
+        }
+    }
+}
\ No newline at end of file
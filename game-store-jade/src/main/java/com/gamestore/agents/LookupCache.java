@@ -0,0 +1,76 @@
+package com.gamestore.agents;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small per-replica cache of found games, as the JSON that was sent, by normalized
+ * title. Misses are never cached: a title missing here may still reach SQLite
+ * through the ontology sync. Only the owning agent thread uses it; the counters are
+ * also read by metrics scrapes.
+ */
+class LookupCache {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+    private volatile long hits;
+    private volatile long misses;
+    
+    LookupCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LookupCache.Entry> eldest) {
+                return size() > LookupCache.this.maxSize;
+            }
+        };
+    }
+    
+    boolean isEnabled() {
+        return maxSize > 0 && ttlNanos > 0;
+    }
+    
+    /** The cached game JSON for this title, or null. */
+    String get(String title) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String key = normalize(title);
+        Entry entry = entries.get(key);
+        if (entry == null || System.nanoTime() - entry.expiresAt >= 0) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.json;
+    }
+    
+    void put(String title, String json) {
+        if (isEnabled()) {
+            entries.put(normalize(title), new Entry(json, System.nanoTime() + ttlNanos));
+        }
+    }
+    
+    long getHits() { return hits; }
+    long getMisses() { return misses; }
+    
+    private static String normalize(String title) {
+        return title.replace("\"", "").trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static class Entry {
+        private final String json;
+        private final long expiresAt;
+        
+        Entry(String json, long expiresAt) {
+            this.json = json;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.gamestore.agents;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.concurrent.VirtualThreads;
+
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+
+/**
+ * Runs an agent's blocking data-store lookups. With an executor the lookup runs on
+ * a worker thread and its continuation is queued back to this behaviour, so replies
+ * are still built and sent on the agent's own thread. Without one the lookup runs
+ * inline, exactly as before.
+ */
+class OffloadedLookups extends CyclicBehaviour {
+    private static final Logger log = LoggerFactory.getLogger(OffloadedLookups.class);
+    
+    private final ExecutorService executor;
+    private final Queue<Runnable> completions = new ConcurrentLinkedQueue<>();
+    
+    OffloadedLookups(Agent agent, ExecutorService executor) {
+        super(agent);
+        this.executor = executor;
+    }
+    
+    // Virtual threads when they are enabled, otherwise a bounded pool of platform workers (0 workers = inline)
+    static OffloadedLookups forAgent(Agent agent, int workers, int queueSize) {
+        if (VirtualThreads.isEnabled()) {
+            log.info("{}: running lookups on virtual threads", agent.getLocalName());
+            return new OffloadedLookups(agent, VirtualThreads.newPerTaskExecutor());
+        }
+        if (VirtualThreads.isRequested()) {
+            log.warn("{}: virtual threads requested but not available on Java {}",
+                agent.getLocalName(), System.getProperty("java.version"));
+        }
+        if (workers > 0) {
+            log.info("{}: running lookups on {} worker threads", agent.getLocalName(), workers);
+            return new OffloadedLookups(agent, newWorkerPool(agent.getLocalName(), workers, queueSize));
+        }
+        log.info("{}: running lookups on the agent thread", agent.getLocalName());
+        return new OffloadedLookups(agent, null);
+    }
+    
+    private static ExecutorService newWorkerPool(String agentName, int workers, int queueSize) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+            r -> {
+                Thread thread = new Thread(r, agentName + "-lookup-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+    
+    /**
+     * Runs the lookup and then its continuation on the agent thread. Cancelling the
+     * returned future before a worker picks the lookup up drops both; once the lookup
+     * has started (or ran inline) cancelling has no effect.
+     */
+    <T> Future<?> submit(Callable<T> lookup, BiConsumer<T, Exception> continuation) {
+        if (executor == null) {
+            complete(lookup, continuation).run();
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return executor.submit(() -> {
+                completions.add(complete(lookup, continuation));
+                restart();
+            });
+        } catch (RejectedExecutionException e) {
+            // Workers and queue are full: the agent thread does this one itself, which also
+            // stops it taking new requests off the message queue until the pool catches up
+            complete(lookup, continuation).run();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+    
+    // Runs the lookup now and returns the continuation to run with its outcome
+    private static <T> Runnable complete(Callable<T> lookup, BiConsumer<T, Exception> continuation) {
+        T result;
+        try {
+            result = lookup.call();
+        } catch (Exception e) {
+            return () -> continuation.accept(null, e);
+        }
+        return () -> continuation.accept(result, null);
+    }
+    
+    @Override
+    public void action() {
+        Runnable completion;
+        while ((completion = completions.poll()) != null) {
+            completion.run();
+        }
+        
+        block();
+        
+        // A lookup that finished between the drain and block() would otherwise wait for the next wake-up
+        if (!completions.isEmpty()) {
+            restart();
+        }
+    }
+    
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            // Give a lookup that is still running the chance to finish before the agent closes its data store
+            try {
+                executor.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,409 @@
+package com.gamestore.agents;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.domain.DFService;
+import jade.domain.FIPAException;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.Property;
+import jade.domain.FIPAAgentManagement.ServiceDescription;
+import jade.lang.acl.ACLMessage;
+import jade.proto.SubscriptionInitiator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.metrics.GameStoreMetrics;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Picks one of the replicas of an agent type. Replicas register their service type
+ * with the Directory Facilitator and the router follows a DF subscription, so replicas
+ * can come and go while the system runs; until the DF has answered, everything goes to
+ * the replica with the well-known local name. Lookups by title use a consistent-hash
+ * ring, so the same title always lands on the same replica and its lookup cache;
+ * everything else goes to the replica with the fewest requests outstanding.
+ * <p>
+ * Replicas also register the container they run in. A replica in the router's own
+ * container is preferred over one elsewhere, since a message that stays inside a
+ * container is not serialized. A replica the platform cannot deliver to is left out
+ * for a while, and a request sent to it is resent to the next choice.
+ * Each answered request is timed per replica on gamestore.acl.round.trip.
+ * Used only from the owning agent's thread.
+ */
+class ReplicaRouter {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+    
+    static final String GAMESTOP_SERVICE = "gamestore-gamestop";
+    static final String DISTRIBUTOR_SERVICE = "gamestore-distributor";
+    
+    // Service property holding the name of the container the replica runs in
+    static final String CONTAINER_PROPERTY = "container";
+    
+    // Points per replica on the hash ring; enough to keep the split even for a handful of replicas
+    private static final int VIRTUAL_NODES = 64;
+    
+    // A request never answered stops counting against its replica after this long
+    private static final long OUTSTANDING_LIFETIME_NANOS = TimeUnit.SECONDS.toNanos(30);
+    
+    // An unreachable replica is tried again after this long; its DF entry may outlive it
+    private static final long SUSPEND_NANOS = TimeUnit.SECONDS.toNanos(10);
+    
+    private final Agent agent;
+    private final String serviceType;
+    private final AID fallback;
+    
+    private final List<AID> replicas = new ArrayList<>();
+    private final Map<AID, String> containers = new HashMap<>();
+    private final Map<AID, Long> suspendedUntil = new HashMap<>();
+    private final TreeMap<Integer, AID> ring = new TreeMap<>();
+    private final Map<AID, Integer> outstandingByReplica = new HashMap<>();
+    // Oldest first, so expired entries are always at the head
+    private final LinkedHashMap<String, Outstanding> outstanding = new LinkedHashMap<>();
+    private final Map<AID, Timer> roundTrips = new HashMap<>();
+    private int nextTieBreak;
+    private String localContainer;
+    private Subscription subscription;
+    
+    ReplicaRouter(Agent agent, String serviceType, String fallbackName) {
+        this.agent = agent;
+        this.serviceType = serviceType;
+        this.fallback = new AID(fallbackName, AID.ISLOCALNAME);
+    }
+    
+    /** Advertises the agent as a replica of the given service type, in the container it runs in. */
+    static void register(Agent agent, String serviceType) {
+        DFAgentDescription description = new DFAgentDescription();
+        description.setName(agent.getAID());
+        ServiceDescription service = new ServiceDescription();
+        service.setType(serviceType);
+        service.setName(agent.getLocalName());
+        service.addProperties(new Property(CONTAINER_PROPERTY, agent.here().getName()));
+        description.addServices(service);
+        try {
+            DFService.register(agent, description);
+        } catch (FIPAException e) {
+            log.warn("{}: could not register with the DF: {}", agent.getLocalName(), e.getMessage());
+        }
+    }
+    
+    static void deregister(Agent agent) {
+        try {
+            DFService.deregister(agent);
+        } catch (FIPAException e) {
+            // Not registered, or the DF is already gone
+        }
+    }
+    
+    /** Starts following the DF for replicas of this router's service type. */
+    void start() {
+        localContainer = agent.here().getName();
+        DFAgentDescription template = new DFAgentDescription();
+        ServiceDescription service = new ServiceDescription();
+        service.setType(serviceType);
+        template.addServices(service);
+        subscription = new Subscription(DFService.createSubscriptionMessage(agent, agent.getDefaultDF(), template, null));
+        agent.addBehaviour(subscription);
+    }
+    
+    void stop() {
+        if (subscription != null) {
+            subscription.cancel(agent.getDefaultDF(), true);
+        }
+    }
+    
+    /**
+     * The replica that owns this title on the hash ring: the first reachable local
+     * replica walking round from the title's point, else the first reachable one.
+     */
+    AID forTitle(String title) {
+        if (ring.isEmpty()) {
+            return fallback;
+        }
+        int point = hash(title.trim().toLowerCase(Locale.ROOT));
+        long now = System.nanoTime();
+        AID owner = null;
+        AID reachable = null;
+        for (Collection<AID> half : Arrays.asList(ring.tailMap(point, true).values(), ring.headMap(point, false).values())) {
+            for (AID replica : half) {
+                if (owner == null) {
+                    owner = replica;
+                }
+                if (isSuspended(replica, now)) {
+                    continue;
+                }
+                if (isLocal(replica)) {
+                    return replica;
+                }
+                if (reachable == null) {
+                    reachable = replica;
+                }
+            }
+        }
+        // With every replica suspended, trying the owner beats failing outright
+        return reachable != null ? reachable : owner;
+    }
+    
+    /** The local replica with the fewest requests outstanding, else the least busy remote one; ties rotate. */
+    AID leastOutstanding() {
+        if (replicas.isEmpty()) {
+            return fallback;
+        }
+        long now = System.nanoTime();
+        AID best = null;
+        int bestRank = Integer.MAX_VALUE;
+        int bestCount = Integer.MAX_VALUE;
+        int start = nextTieBreak++ % replicas.size();
+        for (int i = 0; i < replicas.size(); i++) {
+            AID replica = replicas.get((start + i) % replicas.size());
+            int rank = isSuspended(replica, now) ? 2 : isLocal(replica) ? 0 : 1;
+            int count = outstandingByReplica.getOrDefault(replica, 0);
+            if (rank < bestRank || (rank == bestRank && count < bestCount)) {
+                best = replica;
+                bestRank = rank;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+    
+    /** Counts a request against the replica it was sent to until answered(requestId). */
+    void sent(AID replica, String requestId) {
+        sent(replica, requestId, null, null);
+    }
+    
+    /**
+     * Same as sent(AID, String), keeping the message so failover(requestId) can resend
+     * it. A title search passes its title, so the resend follows the hash ring.
+     */
+    void sent(AID replica, String requestId, ACLMessage message, String title) {
+        expireOutstanding(System.nanoTime());
+        long now = System.nanoTime();
+        outstanding.put(requestId, new Outstanding(replica, now, now, message, title, false));
+        outstandingByReplica.merge(replica, 1, Integer::sum);
+    }
+    
+    /**
+     * Called when the platform could not deliver a request: suspends the replica and
+     * resends the request to the next choice. Returns false when there is no other
+     * replica to try, the request was not kept, or the replica had already begun a
+     * chunked answer that a resend would repeat.
+     */
+    boolean failover(String requestId) {
+        Outstanding entry = outstanding.remove(requestId);
+        if (entry == null) {
+            return false;
+        }
+        release(entry.replica);
+        suspend(entry.replica);
+        if (entry.message == null || entry.answering) {
+            return false;
+        }
+        AID next = entry.title != null ? forTitle(entry.title) : leastOutstanding();
+        if (next.equals(entry.replica) || isSuspended(next, System.nanoTime())) {
+            return false;
+        }
+        ACLMessage resend = (ACLMessage) entry.message.clone();
+        resend.clearAllReceiver();
+        resend.addReceiver(next);
+        agent.send(resend);
+        sent(next, requestId, entry.message, entry.title);
+        log.warn("{}: resent {} to {}", agent.getLocalName(), requestId, next.getLocalName());
+        return true;
+    }
+    
+    /** Leaves a replica out of routing for SUSPEND_NANOS, unless it is the only choice. */
+    void suspend(AID replica) {
+        Long previous = suspendedUntil.put(replica, System.nanoTime() + SUSPEND_NANOS);
+        if (previous == null) {
+            log.warn("{}: {} is unreachable, routing around it", agent.getLocalName(), replica.getLocalName());
+        }
+    }
+    
+    boolean isLocal(AID replica) {
+        return localContainer != null && localContainer.equals(containers.get(replica));
+    }
+    
+    /** The replica a request went to, if it is still outstanding. */
+    AID replicaFor(String requestId) {
+        Outstanding entry = outstanding.get(requestId);
+        return entry != null ? entry.replica : null;
+    }
+    
+    /** Restarts the lifetime of a request that is still being answered, such as a chunked listing. */
+    boolean refresh(String requestId) {
+        Outstanding entry = outstanding.remove(requestId);
+        if (entry == null) {
+            return false;
+        }
+        outstanding.put(requestId, new Outstanding(entry.replica, entry.firstSentAt, System.nanoTime(),
+            entry.message, entry.title, true));
+        return true;
+    }
+    
+    /** Returns false when the request was not sent through this router. */
+    boolean answered(String requestId) {
+        Outstanding entry = outstanding.remove(requestId);
+        if (entry == null) {
+            return false;
+        }
+        release(entry.replica);
+        recordRoundTrip(entry.replica, entry.firstSentAt);
+        return true;
+    }
+    
+    /** Times a reply from the replica to a request sent at sentAt (System.nanoTime()), for requests not counted by sent(). */
+    void recordRoundTrip(AID replica, long sentAt) {
+        Timer timer = roundTrips.get(replica);
+        if (timer == null) {
+            timer = GameStoreMetrics.aclRoundTrip(agent.getLocalName(), replica.getLocalName());
+            roundTrips.put(replica, timer);
+        }
+        timer.record(System.nanoTime() - sentAt, TimeUnit.NANOSECONDS);
+    }
+    
+    int size() {
+        return replicas.size();
+    }
+    
+    /** True for the platform's FAILURE about a message it could not deliver, as opposed to an agent's FAILURE. */
+    static boolean isUndeliverable(Agent agent, ACLMessage msg) {
+        return msg.getPerformative() == ACLMessage.FAILURE && agent.getAMS().equals(msg.getSender());
+    }
+    
+    private boolean isSuspended(AID replica, long now) {
+        Long until = suspendedUntil.get(replica);
+        if (until == null) {
+            return false;
+        }
+        if (now - until >= 0) {
+            suspendedUntil.remove(replica);
+            return false;
+        }
+        return true;
+    }
+    
+    private void expireOutstanding(long now) {
+        Iterator<Outstanding> it = outstanding.values().iterator();
+        while (it.hasNext()) {
+            Outstanding entry = it.next();
+            if (now - entry.sentAt < OUTSTANDING_LIFETIME_NANOS) {
+                break;
+            }
+            it.remove();
+            release(entry.replica);
+        }
+    }
+    
+    private void release(AID replica) {
+        outstandingByReplica.computeIfPresent(replica, (aid, count) -> count > 1 ? count - 1 : null);
+    }
+    
+    private void addReplica(AID replica, String container) {
+        if (container != null) {
+            containers.put(replica, container);
+        }
+        if (replicas.contains(replica)) {
+            return;
+        }
+        replicas.add(replica);
+        for (int i = 0; i < VIRTUAL_NODES; i++) {
+            ring.put(hash(replica.getName() + "#" + i), replica);
+        }
+        String where = isLocal(replica) ? " in this container" : container != null ? " in " + container : "";
+        log.info("{}: {} joined {}{} ({} replicas)", agent.getLocalName(), replica.getLocalName(), serviceType, where,
+            replicas.size());
+    }
+    
+    private void removeReplica(AID replica) {
+        if (!replicas.remove(replica)) {
+            return;
+        }
+        ring.values().removeIf(replica::equals);
+        containers.remove(replica);
+        suspendedUntil.remove(replica);
+        log.info("{}: {} left {} ({} replicas)", agent.getLocalName(), replica.getLocalName(), serviceType, replicas.size());
+    }
+    
+    // FNV-1a with a final avalanche step, so similar keys like "gamestop#1" and "gamestop#2" spread out
+    static int hash(String key) {
+        int h = 0x811C9DC5;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+    
+    private static class Outstanding {
+        private final AID replica;
+        // The first send; a chunked answer's refreshes only move sentAt
+        private final long firstSentAt;
+        private final long sentAt;
+        private final ACLMessage message;
+        private final String title;
+        // Set once part of a chunked answer has arrived
+        private final boolean answering;
+        
+        Outstanding(AID replica, long firstSentAt, long sentAt, ACLMessage message, String title, boolean answering) {
+            this.replica = replica;
+            this.firstSentAt = firstSentAt;
+            this.sentAt = sentAt;
+            this.message = message;
+            this.title = title;
+            this.answering = answering;
+        }
+    }
+    
+    // The DF reports every registration that matches, then each change; no services means deregistered
+    private class Subscription extends SubscriptionInitiator {
+        Subscription(ACLMessage subscribe) {
+            super(agent, subscribe);
+        }
+        
+        @Override
+        protected void handleInform(ACLMessage inform) {
+            try {
+                for (DFAgentDescription description : DFService.decodeNotification(inform.getContent())) {
+                    Iterator<?> services = description.getAllServices();
+                    if (services.hasNext()) {
+                        addReplica(description.getName(), containerOf((ServiceDescription) services.next()));
+                    } else {
+                        removeReplica(description.getName());
+                    }
+                }
+            } catch (FIPAException e) {
+                log.warn("{}: unreadable DF notification: {}", agent.getLocalName(), e.getMessage());
+            }
+        }
+        
+        private String containerOf(ServiceDescription service) {
+            Iterator<?> properties = service.getAllProperties();
+            while (properties.hasNext()) {
+                Property property = (Property) properties.next();
+                if (CONTAINER_PROPERTY.equals(property.getName())) {
+                    return String.valueOf(property.getValue());
+                }
+            }
+            return null;
+        }
+    }
+}
\ No newline at end of file
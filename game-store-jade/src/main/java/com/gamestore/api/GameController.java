@@ -1,209 +1,538 @@
-package com.gamestore.api;
-
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.List;
-import java.util.ArrayList;
-
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.*;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.gamestore.model.Game;
-import com.gamestore.api.dto.GameSearchResponse;
-import com.gamestore.api.dto.GameListResponse;
-import com.gamestore.api.dto.CombinedGameListResponse;
-
-import io.swagger.v3.oas.annotations.Operation;
-import io.swagger.v3.oas.annotations.Parameter;
-import io.swagger.v3.oas.annotations.media.Content;
-import io.swagger.v3.oas.annotations.media.Schema;
-import io.swagger.v3.oas.annotations.responses.ApiResponse;
-import io.swagger.v3.oas.annotations.tags.Tag;
-
-@CrossOrigin(origins = "http://localhost:4200")
-@RestController
-@RequestMapping("/api/games")
-@Tag(name = "Games API", description = "Comprehensive API for game operations using JADE agents")
-public class GameController {
-
-    @Autowired
-    private JadeGatewayService jadeGatewayService;
-    
-    private ObjectMapper objectMapper = new ObjectMapper();
-    
-    // SEARCH ENDPOINTS
-    
-    @GetMapping("/search")
-    @Operation(
-        summary = "Search for a game by title", 
-        description = "Searches for a game by title using JADE agents (GameStop and Distributor). The response includes where the game was found.",
-        responses = {
-            @ApiResponse(responseCode = "200", description = "Game found", 
-                content = @Content(schema = @Schema(implementation = GameSearchResponse.class))),
-            @ApiResponse(responseCode = "404", description = "Game not found"),
-            @ApiResponse(responseCode = "500", description = "Error communicating with agents")
-        }
-    )
-    public ResponseEntity<?> searchGame(
-            @Parameter(description = "Game title to search for") 
-            @RequestParam String title) {
-        
-        try {
-            CompletableFuture<String> future = jadeGatewayService.searchGame(title);
-            
-            String response = future.get(15, TimeUnit.SECONDS);
-            
-            if (response.equals("NOT_FOUND")) {
-                return ResponseEntity.notFound().build();
-            } else {
-                try {
-                    Game game = objectMapper.readValue(response, Game.class);
-                    
-                    // Create response with source information
-                    String source = game.getSource() != null ? game.getSource() : "Unknown";
-                    String message = "Game found in " + source;
-                    
-                    GameSearchResponse searchResponse = new GameSearchResponse(game, source, message);
-                    return ResponseEntity.ok(searchResponse);
-                } catch (Exception e) {
-                    // If parsing fails, return the raw response
-                    return ResponseEntity.ok(response);
-                }
-            }
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            return ResponseEntity.status(500)
-                    .body("Error communicating with game agents: " + e.getMessage());
-        }
-    }
-    
-    // LIST ALL GAMES ENDPOINTS
-
-    @GetMapping("/sqlite/all")
-    @Operation(
-        summary = "Get all games from SQLite database (via GameStop agent)",
-        description = "Returns all games stored in the local SQLite database through the GameStop agent",
-        responses = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved all games from SQLite",
-                content = @Content(schema = @Schema(implementation = GameListResponse.class))),
-            @ApiResponse(responseCode = "500", description = "Error communicating with GameStop agent")
-        }
-    )
-    public ResponseEntity<?> getAllGamesFromSQLite() {
-        try {
-            CompletableFuture<String> future = jadeGatewayService.getAllGamesFromSQLite();
-            String response = future.get(10, TimeUnit.SECONDS);
-            
-            List<Game> games = objectMapper.readValue(response, new TypeReference<List<Game>>(){});
-            
-            GameListResponse listResponse = new GameListResponse(
-                games, 
-                "SQLite Database (via GameStop Agent)", 
-                games.size() + " games found in SQLite database"
-            );
-            
-            return ResponseEntity.ok(listResponse);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            return ResponseEntity.status(500)
-                    .body("Error retrieving games from GameStop agent: " + e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.status(500)
-                    .body("Error parsing response: " + e.getMessage());
-        }
-    }
-
-    @GetMapping("/ontology/all")
-    @Operation(
-        summary = "Get all games from ontology database (via Distributor agent)",
-        description = "Returns all games stored in the ontology database through the Distributor agent",
-        responses = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved all games from ontology",
-                content = @Content(schema = @Schema(implementation = GameListResponse.class))),
-            @ApiResponse(responseCode = "500", description = "Error communicating with Distributor agent")
-        }
-    )
-    public ResponseEntity<?> getAllGamesFromOntology() {
-        try {
-            CompletableFuture<String> future = jadeGatewayService.getAllGamesFromOntology();
-            String response = future.get(10, TimeUnit.SECONDS);
-            
-            // Parse the JSON array of games
-            List<Game> games = objectMapper.readValue(response, new TypeReference<List<Game>>(){});
-            
-            GameListResponse listResponse = new GameListResponse(
-                games, 
-                "Ontology Database (via Distributor Agent)", 
-                games.size() + " games found in ontology database"
-            );
-            
-            return ResponseEntity.ok(listResponse);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            return ResponseEntity.status(500)
-                    .body("Error retrieving games from Distributor agent: " + e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.status(500)
-                    .body("Error parsing response: " + e.getMessage());
-        }
-    }
-
-    @GetMapping("/all")
-    @Operation(
-        summary = "Get all games from both databases (via both agents)",
-        description = "Returns all games from both SQLite and ontology databases through their respective agents",
-        responses = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved all games from both databases",
-                content = @Content(schema = @Schema(implementation = CombinedGameListResponse.class))),
-            @ApiResponse(responseCode = "500", description = "Error communicating with agents")
-        }
-    )
-    public ResponseEntity<?> getAllGamesFromBothDatabases() {
-        try {
-            CompletableFuture<JadeGatewayService.CombinedGamesResponse> future = 
-                jadeGatewayService.getAllGamesFromBoth();
-            JadeGatewayService.CombinedGamesResponse response = future.get(15, TimeUnit.SECONDS);
-            
-            List<Game> sqliteGames = objectMapper.readValue(
-                response.getSqliteGames(), new TypeReference<List<Game>>(){});
-            List<Game> ontologyGames = objectMapper.readValue(
-                response.getOntologyGames(), new TypeReference<List<Game>>(){});
-            
-            List<Game> allGames = new ArrayList<>();
-            allGames.addAll(sqliteGames);
-            allGames.addAll(ontologyGames);
-            
-            allGames.sort((g1, g2) -> g1.getTitle().compareToIgnoreCase(g2.getTitle()));
-            
-            CombinedGameListResponse combinedResponse = new CombinedGameListResponse(
-                allGames,
-                sqliteGames,
-                ontologyGames,
-                "Total: " + allGames.size() + " games (" + 
-                sqliteGames.size() + " from SQLite via GameStop Agent, " + 
-                ontologyGames.size() + " from Ontology via Distributor Agent)"
-            );
-            
-            return ResponseEntity.ok(combinedResponse);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            return ResponseEntity.status(500)
-                    .body("Error retrieving games from agents: " + e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.status(500)
-                    .body("Error parsing response: " + e.getMessage());
-        }
-    }
-    
-    // UTILITY ENDPOINTS
-    
-    @GetMapping("/health")
-    @Operation(
-        summary = "Health check endpoint",
-        description = "Simple health check to verify the API is running"
-    )
-    public ResponseEntity<String> healthCheck() {
-        return ResponseEntity.ok("Games API is running and ready!");
-    }
+package com.gamestore.api;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamestore.model.Game;
+import com.gamestore.model.GamePage;
+import com.gamestore.model.GameQuery;
+import com.gamestore.model.TitleMerge;
+import com.gamestore.api.dto.GameSearchResponse;
+import com.gamestore.api.dto.GameListResponse;
+import com.gamestore.api.dto.CombinedGameListResponse;
+import com.gamestore.api.dto.CacheStatsResponse;
+import com.gamestore.api.dto.GatewayStatsResponse;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@CrossOrigin(origins = "http://localhost:4200")
+@RestController
+@RequestMapping("/api/games")
+@Tag(name = "Games API", description = "Comprehensive API for game operations using JADE agents")
+public class GameController {
+
+    @Autowired
+    private JadeGatewayService jadeGatewayService;
+    
+    @Autowired
+    private SearchResultCache searchCache;
+    
+    // Replies are parsed here rather than on the JADE agent thread that completes the future
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor responseExecutor;
+    
+    @Value("${gamestore.api.search-timeout-ms:15000}")
+    private long searchTimeoutMillis;
+    
+    @Value("${gamestore.api.list-timeout-ms:10000}")
+    private long listTimeoutMillis;
+    
+    @Value("${gamestore.api.combined-timeout-ms:15000}")
+    private long combinedTimeoutMillis;
+    
+    @Value("${gamestore.api.stream-timeout-ms:300000}")
+    private long streamTimeoutMillis;
+    
+    private ObjectMapper objectMapper = new ObjectMapper();
+    
+    // Spring's configured mapper, so streamed games look exactly like the ones in other responses
+    @Autowired
+    private ObjectMapper responseMapper;
+    
+    // SEARCH ENDPOINTS
+    
+    @GetMapping("/search")
+    @Operation(
+        summary = "Search for a game by title", 
+        description = "Searches for a game by title using JADE agents (GameStop and Distributor). The response includes where the game was found. Results are cached per normalized title.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Game found", 
+                content = @Content(schema = @Schema(implementation = GameSearchResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Game not found"),
+            @ApiResponse(responseCode = "500", description = "Error communicating with agents"),
+            @ApiResponse(responseCode = "503", description = "Too many searches waiting for the agents; retry later")
+        }
+    )
+    public CompletableFuture<ResponseEntity<?>> searchGame(
+            @Parameter(description = "Game title to search for") 
+            @RequestParam String title) {
+        
+        // The cached future is shared with other callers, so the timeout goes on a copy
+        return searchCache.get(title, jadeGatewayService::searchGame)
+            .copy()
+            .orTimeout(searchTimeoutMillis, TimeUnit.MILLISECONDS)
+            .handleAsync((response, error) -> {
+                if (error != null) {
+                    if (unwrap(error) instanceof GatewayOverloadedException) {
+                        return overloaded(unwrap(error));
+                    }
+                    return ResponseEntity.status(500)
+                            .body("Error communicating with game agents: " + describe(error));
+                }
+                
+                if (response.equals("NOT_FOUND")) {
+                    return ResponseEntity.notFound().build();
+                }
+                try {
+                    Game game = objectMapper.readValue(response, Game.class);
+                    
+                    // Create response with source information
+                    String source = game.getSource() != null ? game.getSource() : "Unknown";
+                    String message = "Game found in " + source;
+                    
+                    GameSearchResponse searchResponse = new GameSearchResponse(game, source, message);
+                    return ResponseEntity.ok(searchResponse);
+                } catch (Exception e) {
+                    // If parsing fails, return the raw response
+                    return ResponseEntity.ok(response);
+                }
+            }, responseExecutor);
+    }
+    
+    // LIST ALL GAMES ENDPOINTS
+
+    @GetMapping("/sqlite/all")
+    @Operation(
+        summary = "Get games from SQLite database (via GameStop agent)",
+        description = "Returns one page of the games stored in the local SQLite database through the GameStop agent. "
+            + "Filtering, sorting and paging run in SQLite; pass nextCursor from a response to get the following page.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved a page of games from SQLite",
+                content = @Content(schema = @Schema(implementation = GameListResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid paging, filter or sort parameter"),
+            @ApiResponse(responseCode = "500", description = "Error communicating with GameStop agent"),
+            @ApiResponse(responseCode = "503", description = "Too many page requests waiting for the agents; retry later")
+        }
+    )
+    public CompletableFuture<ResponseEntity<?>> getAllGamesFromSQLite(
+            @Parameter(description = "Games per page, 1 to " + GameQuery.MAX_LIMIT)
+            @RequestParam(defaultValue = "" + GameQuery.DEFAULT_LIMIT) int limit,
+            @Parameter(description = "nextCursor of the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Only games of this genre")
+            @RequestParam(required = false) String genre,
+            @Parameter(description = "Only games available on this platform")
+            @RequestParam(required = false) String platform,
+            @Parameter(description = "Lowest price to include")
+            @RequestParam(required = false) Double minPrice,
+            @Parameter(description = "Highest price to include")
+            @RequestParam(required = false) Double maxPrice,
+            @Parameter(description = "Sort order: title, -title, price or -price")
+            @RequestParam(defaultValue = "title") String sort) {
+        
+        GameQuery query;
+        try {
+            query = new GameQuery()
+                .limit(limit)
+                .sort(GameQuery.Sort.fromParam(sort))
+                .cursor(cursor)
+                .genre(genre)
+                .platform(platform)
+                .priceRange(minPrice, maxPrice);
+            query.decodeCursor();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(e.getMessage()));
+        }
+        
+        return jadeGatewayService.getGamesFromSQLite(query)
+            .orTimeout(listTimeoutMillis, TimeUnit.MILLISECONDS)
+            .handleAsync((response, error) -> {
+                if (error != null) {
+                    if (unwrap(error) instanceof IllegalArgumentException) {
+                        return ResponseEntity.badRequest().body(unwrap(error).getMessage());
+                    }
+                    if (unwrap(error) instanceof GatewayOverloadedException) {
+                        return overloaded(unwrap(error));
+                    }
+                    return ResponseEntity.status(500)
+                            .body("Error retrieving games from GameStop agent: " + describe(error));
+                }
+                try {
+                    GamePage page = response.toPage(objectMapper);
+                    List<Game> games = page.getGames();
+                    
+                    GameListResponse listResponse = new GameListResponse(
+                        games, 
+                        "SQLite Database (via GameStop Agent)", 
+                        games.size() + " games found in SQLite database"
+                            + (page.getNextCursor() != null ? ", more on the next page" : "")
+                    );
+                    listResponse.setNextCursor(page.getNextCursor());
+                    
+                    return ResponseEntity.ok(listResponse);
+                } catch (Exception e) {
+                    return ResponseEntity.status(500)
+                            .body("Error parsing response: " + e.getMessage());
+                }
+            }, responseExecutor);
+    }
+
+    @GetMapping("/ontology/all")
+    @Operation(
+        summary = "Get all games from ontology database (via Distributor agent)",
+        description = "Returns all games stored in the ontology database through the Distributor agent",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved all games from ontology",
+                content = @Content(schema = @Schema(implementation = GameListResponse.class))),
+            @ApiResponse(responseCode = "429", description = "Too many catalog scans waiting already; retry later"),
+            @ApiResponse(responseCode = "500", description = "Error communicating with Distributor agent")
+        }
+    )
+    public CompletableFuture<ResponseEntity<?>> getAllGamesFromOntology() {
+        return jadeGatewayService.getAllGamesFromOntology()
+            .orTimeout(listTimeoutMillis, TimeUnit.MILLISECONDS)
+            .handleAsync((response, error) -> {
+                if (error != null) {
+                    if (unwrap(error) instanceof GatewayOverloadedException) {
+                        return overloaded(unwrap(error));
+                    }
+                    return ResponseEntity.status(500)
+                            .body("Error retrieving games from Distributor agent: " + describe(error));
+                }
+                try {
+                    // Decode the games, from JSON or the binary listing encoding
+                    List<Game> games = response.toGames(objectMapper);
+                    
+                    GameListResponse listResponse = new GameListResponse(
+                        games, 
+                        "Ontology Database (via Distributor Agent)", 
+                        games.size() + " games found in ontology database"
+                    );
+                    
+                    return ResponseEntity.ok(listResponse);
+                } catch (Exception e) {
+                    return ResponseEntity.status(500)
+                            .body("Error parsing response: " + e.getMessage());
+                }
+            }, responseExecutor);
+    }
+
+    @GetMapping("/all")
+    @Operation(
+        summary = "Get all games from both databases (via both agents)",
+        description = "Returns all games from both SQLite and ontology databases through their respective agents, merged by title. " +
+                      "A source that fails or misses the per-source deadline is listed in degradedSources and the rest is returned.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Games from every source that answered in time",
+                content = @Content(schema = @Schema(implementation = CombinedGameListResponse.class))),
+            @ApiResponse(responseCode = "429", description = "Too many catalog scans waiting already; retry later"),
+            @ApiResponse(responseCode = "500", description = "Error communicating with agents")
+        }
+    )
+    public CompletableFuture<ResponseEntity<?>> getAllGamesFromBothDatabases() {
+        return jadeGatewayService.getAllGamesFromBoth()
+            .orTimeout(combinedTimeoutMillis, TimeUnit.MILLISECONDS)
+            .handleAsync((response, error) -> {
+                if (error != null) {
+                    if (unwrap(error) instanceof GatewayOverloadedException) {
+                        return overloaded(unwrap(error));
+                    }
+                    return ResponseEntity.status(500)
+                            .body("Error retrieving games from agents: " + describe(error));
+                }
+                try {
+                    List<Game> sqliteGames = parseGames(response.getSqliteGames());
+                    List<Game> ontologyGames = parseGames(response.getOntologyGames());
+                    
+                    // Both agents already return their lists ordered by title
+                    List<Game> allGames = TitleMerge.mergeByTitle(Arrays.asList(sqliteGames, ontologyGames));
+                    
+                    String message = "Total: " + allGames.size() + " games (" + 
+                        sqliteGames.size() + " from SQLite via GameStop Agent, " + 
+                        ontologyGames.size() + " from Ontology via Distributor Agent)";
+                    List<String> degradedSources = new ArrayList<>();
+                    for (JadeGatewayService.Source source : response.getDegradedSources()) {
+                        degradedSources.add(source.name());
+                    }
+                    if (!degradedSources.isEmpty()) {
+                        message += " - partial result, missing "  + String.join(", ", degradedSources);
+                    }
+                    
+                    CombinedGameListResponse combinedResponse = new CombinedGameListResponse(
+                        allGames,
+                        sqliteGames,
+                        ontologyGames,
+                        message
+                    );
+                    combinedResponse.setDegradedSources(degradedSources);
+                    
+                    return ResponseEntity.ok(combinedResponse);
+                } catch (Exception e) {
+                    return ResponseEntity.status(500)
+                            .body("Error parsing response: " + e.getMessage());
+                }
+            }, responseExecutor);
+    }
+    
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    @Operation(
+        summary = "Stream all games as NDJSON",
+        description = "Streams the catalog one game per line as the agents send it in chunks, so memory use does not " +
+                      "grow with the catalog. Games are ordered within each source; with source=both the two " +
+                      "sources are interleaved. If the stream fails midway, the last line is an {\"error\": ...} object.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Newline-delimited JSON, one game per line"),
+            @ApiResponse(responseCode = "400", description = "Unknown source or invalid chunk size"),
+            @ApiResponse(responseCode = "429", description = "Too many catalog scans waiting already; retry later")
+        }
+    )
+    public ResponseEntity<ResponseBodyEmitter> streamGames(
+            @Parameter(description = "sqlite, ontology or both")
+            @RequestParam(defaultValue = "both") String source,
+            @Parameter(description = "Games per agent message, 1 to " + GameQuery.MAX_LIMIT)
+            @RequestParam(defaultValue = "200") int chunkSize) {
+        
+        JadeGatewayService.Source streamSource;
+        try {
+            streamSource = JadeGatewayService.Source.valueOf(source.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return badStreamRequest("source must be sqlite, ontology or both");
+        }
+        if (chunkSize < 1 || chunkSize > GameQuery.MAX_LIMIT) {
+            return badStreamRequest("chunkSize must be between 1 and " + GameQuery.MAX_LIMIT);
+        }
+        
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(streamTimeoutMillis);
+        NdjsonStream stream = new NdjsonStream(emitter);
+        CompletableFuture<Void> done = jadeGatewayService.streamAllGames(streamSource, chunkSize, stream::write);
+        
+        // Refused by the gateway queue before anything was sent: answer with a status, not an error line
+        Throwable refused = unwrap(done.handle((result, error) -> error).getNow(null));
+        if (refused instanceof GatewayOverloadedException) {
+            return plainStream(overloadStatus(refused), retryHeaders(), refused.getMessage());
+        }
+        done.whenComplete((result, error) -> stream.finish(error));
+        
+        // A client that goes away, or a stream that runs too long, stops the agents
+        emitter.onTimeout(() -> done.completeExceptionally(new TimeoutException("Stream timed out")));
+        emitter.onError(error -> done.completeExceptionally(error));
+        stream.onWriteFailure(done::completeExceptionally);
+        
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+    
+    // The endpoint's return type has to be an emitter, even for a plain 400
+    private static ResponseEntity<ResponseBodyEmitter> badStreamRequest(String message) {
+        return plainStream(HttpStatus.BAD_REQUEST, new HttpHeaders(), message);
+    }
+    
+    private static ResponseEntity<ResponseBodyEmitter> plainStream(HttpStatus status, HttpHeaders headers, String message) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        try {
+            emitter.send(message, MediaType.TEXT_PLAIN);
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return ResponseEntity.status(status).headers(headers).contentType(MediaType.TEXT_PLAIN).body(emitter);
+    }
+    
+    // A full scan lane means this caller wants more catalog scans than may wait (429); any other full lane means
+    // the gateway as a whole is saturated (503). Either way the client should come back shortly
+    private static ResponseEntity<?> overloaded(Throwable error) {
+        return ResponseEntity.status(overloadStatus(error)).headers(retryHeaders()).body(error.getMessage());
+    }
+    
+    private static HttpStatus overloadStatus(Throwable error) {
+        return ((GatewayOverloadedException) error).getLane() == GatewayQueue.Lane.SCAN
+            ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+    }
+    
+    private static HttpHeaders retryHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return headers;
+    }
+    
+    // Writes chunks to the client in arrival order, off the JADE thread, confirming each once written
+    private class NdjsonStream {
+        private final ResponseBodyEmitter emitter;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private volatile boolean failed;
+        private volatile Consumer<Throwable> writeFailureHandler;
+        
+        NdjsonStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+        
+        void onWriteFailure(Consumer<Throwable> handler) {
+            this.writeFailureHandler = handler;
+        }
+        
+        synchronized void write(JadeGatewayService.ListingChunk chunk) {
+            tail = tail.thenRunAsync(() -> {
+                if (failed) {
+                    return;
+                }
+                try {
+                    StringBuilder lines = new StringBuilder();
+                    for (Game game : chunk.getGames().toGames(objectMapper)) {
+                        lines.append(responseMapper.writeValueAsString(game)).append('\n');
+                    }
+                    if (lines.length() > 0) {
+                        emitter.send(lines.toString(), MediaType.APPLICATION_NDJSON);
+                    }
+                    jadeGatewayService.confirmChunk(chunk);
+                } catch (Exception e) {
+                    failed = true;
+                    if (writeFailureHandler != null) {
+                        writeFailureHandler.accept(e);
+                    }
+                }
+            }, responseExecutor);
+        }
+        
+        synchronized void finish(Throwable error) {
+            tail = tail.thenRunAsync(() -> {
+                if (error == null) {
+                    emitter.complete();
+                    return;
+                }
+                try {
+                    if (!failed) {
+                        Map<String, String> line = Collections.singletonMap("error", describe(error));
+                        emitter.send(responseMapper.writeValueAsString(line) + "\n", MediaType.APPLICATION_NDJSON);
+                    }
+                    emitter.complete();
+                } catch (Exception e) {
+                    emitter.completeWithError(e);
+                }
+            }, responseExecutor);
+        }
+    }
+    
+    // A degraded source has no reply and contributes an empty list
+    private List<Game> parseGames(GameListing listing) throws IOException {
+        if (listing == null) {
+            return Collections.emptyList();
+        }
+        return listing.toGames(objectMapper);
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    private static String describe(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof TimeoutException) {
+            return "no reply from the agents in time";
+        }
+        return cause.getMessage();
+    }
+    
+    // CACHE ENDPOINTS
+    
+    @GetMapping("/cache/stats")
+    @Operation(
+        summary = "Search cache statistics",
+        description = "Returns size, hit/miss counts and evictions of the title search cache"
+    )
+    public ResponseEntity<CacheStatsResponse> getCacheStats() {
+        CacheStatsResponse stats = new CacheStatsResponse(
+            searchCache.size(),
+            searchCache.getMaxSize(),
+            searchCache.getHits(),
+            searchCache.getMisses(),
+            searchCache.getEvictions(),
+            searchCache.getHitRate()
+        );
+        return ResponseEntity.ok(stats);
+    }
+    
+    @DeleteMapping("/cache")
+    @Operation(
+        summary = "Invalidate cached search results",
+        description = "Drops the cached result for one title, or every cached result when no title is given. Call this after the SQLite or ontology data changes."
+    )
+    public ResponseEntity<String> invalidateCache(
+            @Parameter(description = "Game title to invalidate; omit to clear the whole cache")
+            @RequestParam(required = false) String title) {
+        
+        if (title == null || title.trim().isEmpty()) {
+            searchCache.invalidateAll();
+            return ResponseEntity.ok("Search cache cleared");
+        }
+        searchCache.invalidate(title);
+        return ResponseEntity.ok("Search cache entry for '" + title + "' invalidated");
+    }
+    
+    @GetMapping("/gateway/stats")
+    @Operation(
+        summary = "Agent gateway statistics",
+        description = "Returns how many agent replies are pending, how many requests expired without a reply, how many replies arrived after their request expired, "
+            + "and per queue lane how many requests are waiting for the gateway agent, how many were refused because the lane was full "
+            + "and how many were dropped unsent because they expired or were abandoned while queued"
+    )
+    public ResponseEntity<GatewayStatsResponse> getGatewayStats() {
+        GatewayStatsResponse stats = new GatewayStatsResponse(
+            jadeGatewayService.getPendingCount(),
+            jadeGatewayService.getExpiredCount(),
+            jadeGatewayService.getLateReplyCount(),
+            jadeGatewayService.getUnknownReplyCount()
+        );
+        GatewayQueue queue = jadeGatewayService.getRequestQueue();
+        Map<String, Integer> queueDepth = new LinkedHashMap<>();
+        Map<String, Long> rejectedRequests = new LinkedHashMap<>();
+        Map<String, Long> droppedRequests = new LinkedHashMap<>();
+        for (GatewayQueue.Lane lane : GatewayQueue.Lane.values()) {
+            queueDepth.put(lane.name().toLowerCase(), queue.depth(lane));
+            rejectedRequests.put(lane.name().toLowerCase(), queue.rejected(lane));
+            droppedRequests.put(lane.name().toLowerCase(), queue.dropped(lane));
+        }
+        stats.setQueueDepth(queueDepth);
+        stats.setRejectedRequests(rejectedRequests);
+        stats.setDroppedRequests(droppedRequests);
+        stats.setScansInFlight(queue.getScansInFlight());
+        return ResponseEntity.ok(stats);
+    }
+    
+    // UTILITY ENDPOINTS
+    
+    @GetMapping("/health")
+    @Operation(
+        summary = "Health check endpoint",
+        description = "Simple health check to verify the API is running"
+    )
+    public ResponseEntity<String> healthCheck() {
+        return ResponseEntity.ok("Games API is running and ready!");
+    }
 }
\ No newline at end of file
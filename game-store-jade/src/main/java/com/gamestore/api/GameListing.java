@@ -0,0 +1,58 @@
+package com.gamestore.api;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamestore.model.Game;
+import com.gamestore.model.GameBinaryCodec;
+import com.gamestore.model.GamePage;
+
+/**
+ * A listing reply as the agent sent it: JSON text, or GameBinaryCodec bytes when
+ * the binary encoding was negotiated. It is decoded by whoever reads it, so the
+ * JADE thread that receives the reply never pays for parsing.
+ */
+public final class GameListing {
+    private static final TypeReference<List<Game>> GAME_LIST = new TypeReference<List<Game>>() {};
+
+    private final String json;
+    private final byte[] binary;
+
+    private GameListing(String json, byte[] binary) {
+        this.json = json;
+        this.binary = binary;
+    }
+
+    public static GameListing ofJson(String json) {
+        return new GameListing(json, null);
+    }
+
+    public static GameListing ofBinary(byte[] binary) {
+        return new GameListing(null, binary);
+    }
+
+    public boolean isBinary() {
+        return binary != null;
+    }
+
+    /** Size of the payload as received: bytes for binary, characters for JSON. */
+    public int getPayloadSize() {
+        return binary != null ? binary.length : json.length();
+    }
+
+    public List<Game> toGames(ObjectMapper objectMapper) throws IOException {
+        if (binary != null) {
+            return GameBinaryCodec.decode(binary).getGames();
+        }
+        return objectMapper.readValue(json, GAME_LIST);
+    }
+
+    public GamePage toPage(ObjectMapper objectMapper) throws IOException {
+        if (binary != null) {
+            return GameBinaryCodec.decode(binary);
+        }
+        return objectMapper.readValue(json, GamePage.class);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.gamestore.api;
+
+/**
+ * Thrown when a request finds its GatewayQueue lane full. GameController answers
+ * 429 for a full scan lane, where the caller asked for more catalog scans than are
+ * allowed to wait, and 503 otherwise.
+ */
+public class GatewayOverloadedException extends RuntimeException {
+    private final GatewayQueue.Lane lane;
+
+    public GatewayOverloadedException(GatewayQueue.Lane lane, int capacity) {
+        super("Gateway queue full: " + capacity + " " + lane.name().toLowerCase() + " requests already waiting");
+        this.lane = lane;
+    }
+
+    public GatewayQueue.Lane getLane() {
+        return lane;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.gamestore.api;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.gamestore.api.JadeGatewayService.GetAllGamesRequest;
+import com.gamestore.api.JadeGatewayService.SearchGameRequest;
+import com.gamestore.api.JadeGatewayService.StreamControl;
+import com.gamestore.metrics.GameStoreMetrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * The requests waiting for ApiGatewayAgent, in one bounded lane per kind of request.
+ * The agent takes them in lane order, so a title search never waits behind full
+ * catalog scans, and scans can be held back while too many are already with the
+ * agents. A request whose lane is full is refused with GatewayOverloadedException
+ * instead of waiting out its reply timeout in the queue. Stream confirmations and
+ * cancellations are never refused: streams that are already running depend on them.
+ * A request that expired or was abandoned while it waited is dropped by the agent and
+ * counted here, rather than sent.
+ * Each request's time in the queue is recorded per lane on gamestore.gateway.queue.wait.
+ */
+public class GatewayQueue implements MeterBinder {
+    /** In the order the agent takes them. */
+    public enum Lane { CONTROL, SEARCH, PAGE, SCAN }
+
+    private static final Map<Lane, Timer> WAIT_TIMERS = new EnumMap<>(Lane.class);
+    static {
+        for (Lane lane : Lane.values()) {
+            WAIT_TIMERS.put(lane, GameStoreMetrics.queueWait(lane.name().toLowerCase()));
+        }
+    }
+
+    private final Map<Lane, ArrayDeque<Waiting>> lanes = new EnumMap<>(Lane.class);
+    private final Map<Lane, Integer> capacities = new EnumMap<>(Lane.class);
+    private final AtomicLongArray rejected = new AtomicLongArray(Lane.values().length);
+    private final AtomicLongArray dropped = new AtomicLongArray(Lane.values().length);
+    private volatile int scansInFlight;
+
+    public GatewayQueue(int searchCapacity, int pageCapacity, int scanCapacity) {
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new ArrayDeque<>());
+        }
+        capacities.put(Lane.CONTROL, Integer.MAX_VALUE);
+        capacities.put(Lane.SEARCH, searchCapacity);
+        capacities.put(Lane.PAGE, pageCapacity);
+        capacities.put(Lane.SCAN, scanCapacity);
+    }
+
+    /**
+     * Queues the request. When its lane is full, a blocking caller waits for room and
+     * any other caller gets GatewayOverloadedException.
+     */
+    public synchronized void offer(Object request, boolean blocking) throws InterruptedException {
+        Lane lane = laneOf(request);
+        ArrayDeque<Waiting> queue = lanes.get(lane);
+        while (queue.size() >= capacities.get(lane)) {
+            if (!blocking) {
+                rejected.incrementAndGet(lane.ordinal());
+                throw new GatewayOverloadedException(lane, capacities.get(lane));
+            }
+            wait();
+        }
+        queue.add(new Waiting(request, System.nanoTime()));
+    }
+
+    /** The next request in lane order, or null. Scans are skipped while scansAllowed is false. */
+    public synchronized Object poll(boolean scansAllowed) {
+        for (Lane lane : Lane.values()) {
+            if (lane == Lane.SCAN && !scansAllowed) {
+                break;
+            }
+            Waiting waiting = lanes.get(lane).poll();
+            if (waiting != null) {
+                WAIT_TIMERS.get(lane).record(System.nanoTime() - waiting.queuedAt, TimeUnit.NANOSECONDS);
+                notifyAll();
+                return waiting.request;
+            }
+        }
+        return null;
+    }
+
+    /** Whether poll(scansAllowed) would return a request. */
+    public synchronized boolean hasReady(boolean scansAllowed) {
+        for (Lane lane : Lane.values()) {
+            if (lane == Lane.SCAN && !scansAllowed) {
+                break;
+            }
+            if (!lanes.get(lane).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int depth(Lane lane) {
+        return lanes.get(lane).size();
+    }
+
+    public int capacity(Lane lane) {
+        return capacities.get(lane);
+    }
+
+    public long rejected(Lane lane) {
+        return rejected.get(lane.ordinal());
+    }
+
+    /** Called by the agent for a polled request whose caller no longer waits for it. */
+    public void drop(Object request) {
+        dropped.incrementAndGet(laneOf(request).ordinal());
+    }
+
+    public long dropped(Lane lane) {
+        return dropped.get(lane.ordinal());
+    }
+
+    /** Reported by the agent, which counts the scans sent but not yet answered. */
+    public int getScansInFlight() { return scansInFlight; }
+    public void setScansInFlight(int scansInFlight) { this.scansInFlight = scansInFlight; }
+
+    /** Depth, refusals and drops per lane, and the scans with the agents. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Lane lane : Lane.values()) {
+            String name = lane.name().toLowerCase();
+            Gauge.builder("gamestore.gateway.queue.depth", this, queue -> queue.depth(lane))
+                .description("Requests waiting for ApiGatewayAgent")
+                .tag("lane", name)
+                .register(registry);
+            FunctionCounter.builder("gamestore.gateway.queue.rejected", this, queue -> queue.rejected(lane))
+                .description("Requests refused because their lane was full")
+                .tag("lane", name)
+                .register(registry);
+            FunctionCounter.builder("gamestore.gateway.queue.dropped", this, queue -> queue.dropped(lane))
+                .description("Requests dropped unsent because they expired or were abandoned while queued")
+                .tag("lane", name)
+                .register(registry);
+        }
+        Gauge.builder("gamestore.gateway.scans.in.flight", this, GatewayQueue::getScansInFlight)
+            .description("Catalog scans sent to the agents and not yet answered")
+            .register(registry);
+    }
+
+    // A page of SQLite games is bounded by GameQuery.MAX_LIMIT; everything else from GetAllGamesRequest reads a whole catalog
+    public static Lane laneOf(Object request) {
+        if (request instanceof StreamControl) {
+            return Lane.CONTROL;
+        }
+        if (request instanceof SearchGameRequest) {
+            return Lane.SEARCH;
+        }
+        if (request instanceof GetAllGamesRequest && ((GetAllGamesRequest) request).getQuery() != null) {
+            return Lane.PAGE;
+        }
+        return Lane.SCAN;
+    }
+
+    private static class Waiting {
+        final Object request;
+        final long queuedAt;
+
+        Waiting(Object request, long queuedAt) {
+            this.request = request;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
\ No newline at end of file
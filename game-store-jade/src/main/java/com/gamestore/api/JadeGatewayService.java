@@ -1,196 +1,741 @@
-package com.gamestore.api;
-
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-
-import org.springframework.stereotype.Service;
-
-import jade.wrapper.AgentController;
-
-@Service
-public class JadeGatewayService {
-    private AgentController gatewayAgent;
-    
-    // Store game search results with request IDs
-    private ConcurrentHashMap<String, CompletableFuture<String>> responseMap = new ConcurrentHashMap<>();
-    private ConcurrentHashMap<String, CompletableFuture<CombinedGamesResponse>> combinedResponseMap = new ConcurrentHashMap<>();
-    private ConcurrentHashMap<String, String> sqliteResponseMap = new ConcurrentHashMap<>();
-    private ConcurrentHashMap<String, String> ontologyResponseMap = new ConcurrentHashMap<>();
-    
-    public void setGatewayAgent(AgentController gatewayAgent) {
-        this.gatewayAgent = gatewayAgent;
-    }
-
-    public CompletableFuture<String> searchGame(String title) {
-        String requestId = "req_" + System.currentTimeMillis();
-        CompletableFuture<String> future = new CompletableFuture<>();
-        responseMap.put(requestId, future);
-        
-        try {
-            gatewayAgent.putO2AObject(new SearchGameRequest(title, requestId), AgentController.ASYNC);
-        } catch (Exception e) {
-            future.completeExceptionally(e);
-        }
-        
-        return future;
-    }
-    
-    public CompletableFuture<String> getAllGamesFromSQLite() {
-        String requestId = "getAllSQLite_" + System.currentTimeMillis();
-        CompletableFuture<String> future = new CompletableFuture<>();
-        responseMap.put(requestId, future);
-        
-        try {
-            gatewayAgent.putO2AObject(new GetAllGamesRequest(requestId, "SQLITE"), AgentController.ASYNC);
-        } catch (Exception e) {
-            future.completeExceptionally(e);
-        }
-        
-        return future;
-    }
-    
-    public CompletableFuture<String> getAllGamesFromOntology() {
-        String requestId = "getAllOntology_" + System.currentTimeMillis();
-        CompletableFuture<String> future = new CompletableFuture<>();
-        responseMap.put(requestId, future);
-        
-        try {
-            gatewayAgent.putO2AObject(new GetAllGamesRequest(requestId, "ONTOLOGY"), AgentController.ASYNC);
-        } catch (Exception e) {
-            future.completeExceptionally(e);
-        }
-        
-        return future;
-    }
-    
-    public CompletableFuture<CombinedGamesResponse> getAllGamesFromBoth() {
-        String requestId = "getAllBoth_" + System.currentTimeMillis();
-        CompletableFuture<CombinedGamesResponse> future = new CompletableFuture<>();
-        combinedResponseMap.put(requestId, future);
-        
-        try {
-            gatewayAgent.putO2AObject(new GetAllGamesRequest(requestId, "BOTH"), AgentController.ASYNC);
-        } catch (Exception e) {
-            future.completeExceptionally(e);
-        }
-        
-        return future;
-    }
-    
-    public void receiveResponse(String requestId, String response) {
-        CompletableFuture<String> future = responseMap.remove(requestId);
-        if (future != null) {
-            future.complete(response);
-        }
-    }
-    
-    public void receiveGetAllGamesResponse(String requestId, String response) {
-        System.out.println("JadeGatewayService: Received getAllGames response for ID: " + requestId);
-        System.out.println("JadeGatewayService: Response content: " + (response != null ? response.substring(0, Math.min(100, response.length())) + "..." : "null"));
-        
-        if (requestId.contains("_SQLITE")) {
-            String baseRequestId = requestId.replace("_SQLITE", "");
-            sqliteResponseMap.put(baseRequestId, response);
-            System.out.println("JadeGatewayService: Stored SQLite response for base ID: " + baseRequestId);
-            
-            if (!baseRequestId.startsWith("getAllBoth_")) {
-                CompletableFuture<String> future = responseMap.remove(baseRequestId);
-                if (future != null) {
-                    System.out.println("JadeGatewayService: Completing SQLite-only future");
-                    future.complete(response);
-                } else {
-                    System.out.println("JadeGatewayService: WARNING - No future found for SQLite request: " + baseRequestId);
-                }
-            } else {
-                checkAndCompleteCombinedResponse(baseRequestId);
-            }
-            
-        } else if (requestId.contains("_ONTOLOGY")) {
-            String baseRequestId = requestId.replace("_ONTOLOGY", "");
-            ontologyResponseMap.put(baseRequestId, response);
-            System.out.println("JadeGatewayService: Stored ontology response for base ID: " + baseRequestId);
-            
-            if (!baseRequestId.startsWith("getAllBoth_")) {
-                CompletableFuture<String> future = responseMap.remove(baseRequestId);
-                if (future != null) {
-                    System.out.println("JadeGatewayService: Completing ontology-only future");
-                    future.complete(response);
-                } else {
-                    System.out.println("JadeGatewayService: WARNING - No future found for ontology request: " + baseRequestId);
-                }
-            } else {
-                checkAndCompleteCombinedResponse(baseRequestId);
-            }
-        } else if (requestId.startsWith("getAllSQLite_")) {
-            CompletableFuture<String> future = responseMap.remove(requestId);
-            if (future != null) {
-                System.out.println("JadeGatewayService: Completing SQLite future for direct request");
-                future.complete(response);
-            } else {
-                System.out.println("JadeGatewayService: WARNING - No future found for direct SQLite request: " + requestId);
-            }
-        } else if (requestId.startsWith("getAllOntology_")) {
-            CompletableFuture<String> future = responseMap.remove(requestId);
-            if (future != null) {
-                System.out.println("JadeGatewayService: Completing ontology future for direct request");
-                future.complete(response);
-            } else {
-                System.out.println("JadeGatewayService: WARNING - No future found for direct ontology request: " + requestId);
-            }
-        }
-    }
-    
-    private void checkAndCompleteCombinedResponse(String requestId) {
-        String sqliteResponse = sqliteResponseMap.get(requestId);
-        String ontologyResponse = ontologyResponseMap.get(requestId);
-        
-        if (sqliteResponse != null && ontologyResponse != null) {
-            CompletableFuture<CombinedGamesResponse> future = combinedResponseMap.remove(requestId);
-            if (future != null) {
-                CombinedGamesResponse combined = new CombinedGamesResponse(sqliteResponse, ontologyResponse);
-                future.complete(combined);
-            }
-            sqliteResponseMap.remove(requestId);
-            ontologyResponseMap.remove(requestId);
-        }
-    }
-    
-    public static class SearchGameRequest {
-        private String title;
-        private String requestId;
-        
-        public SearchGameRequest(String title, String requestId) {
-            this.title = title;
-            this.requestId = requestId;
-        }
-        
-        public String getTitle() { return title; }
-        public String getRequestId() { return requestId; }
-    }
-    
-    public static class GetAllGamesRequest {
-        private String requestId;
-        private String source; // "SQLITE", "ONTOLOGY", or "BOTH"
-        
-        public GetAllGamesRequest(String requestId, String source) {
-            this.requestId = requestId;
-            this.source = source;
-        }
-        
-        public String getRequestId() { return requestId; }
-        public String getSource() { return source; }
-    }
-    
-    public static class CombinedGamesResponse {
-        private String sqliteGames;
-        private String ontologyGames;
-        
-        public CombinedGamesResponse(String sqliteGames, String ontologyGames) {
-            this.sqliteGames = sqliteGames;
-            this.ontologyGames = ontologyGames;
-        }
-        
-        public String getSqliteGames() { return sqliteGames; }
-        public String getOntologyGames() { return ontologyGames; }
-    }
+package com.gamestore.api;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.gamestore.metrics.GameStoreMetrics;
+import com.gamestore.model.GameBinaryCodec;
+import com.gamestore.model.GameQuery;
+
+import jade.wrapper.AgentController;
+
+@Service
+public class JadeGatewayService {
+    private static final Logger log = LoggerFactory.getLogger(JadeGatewayService.class);
+    
+    public enum Source { SQLITE, ONTOLOGY, BOTH }
+    
+    private AgentController gatewayAgent;
+    
+    // Correlation IDs: a per-instance prefix plus a monotonic counter, so no two requests share an ID
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong sequence = new AtomicLong();
+    
+    // Every reply the agents can send back, keyed by the ID it will carry in in-reply-to
+    private final ConcurrentHashMap<String, PendingReply> pendingReplies = new ConcurrentHashMap<>();
+    
+    // IDs the reaper gave up on, remembered for a while so a reply that shows up later counts as late
+    private final ConcurrentHashMap<String, Long> recentlyExpired = new ConcurrentHashMap<>();
+    
+    @Value("${gamestore.gateway.reply-timeout-ms:20000}")
+    private long replyTimeoutMillis = 20000;
+    
+    // How long a BOTH request waits for the slower source before answering with what it has
+    @Value("${gamestore.gateway.source-deadline-ms:8000}")
+    private long sourceDeadlineMillis = 8000;
+    
+    // What listing replies the agents may send: json, binary or binary+gzip (see GameBinaryCodec)
+    @Value("${gamestore.gateway.listing-encoding:binary}")
+    private String listingEncoding = GameBinaryCodec.ACCEPT_BINARY;
+    
+    @Value("${gamestore.gateway.reaper-interval-ms:1000}")
+    private long reaperIntervalMillis = 1000;
+    
+    // Requests allowed to wait for ApiGatewayAgent, per lane (see GatewayQueue)
+    @Value("${gamestore.gateway.queue.search-capacity:500}")
+    private int searchQueueCapacity = 500;
+    
+    @Value("${gamestore.gateway.queue.page-capacity:200}")
+    private int pageQueueCapacity = 200;
+    
+    @Value("${gamestore.gateway.queue.scan-capacity:20}")
+    private int scanQueueCapacity = 20;
+    
+    // Catalog scans the agents work on at once; further scans wait in the queue. 0 means no limit
+    @Value("${gamestore.gateway.max-scans-in-flight:4}")
+    private int maxScansInFlight = 4;
+    
+    private GatewayQueue requestQueue;
+    
+    private ScheduledExecutorService reaper;
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong lateReplyCount = new AtomicLong();
+    private final AtomicLong unknownReplyCount = new AtomicLong();
+    
+    @PostConstruct
+    public synchronized void startReaper() {
+        if (reaper != null) {
+            return;
+        }
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "gateway-reply-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reaper.scheduleWithFixedDelay(this::reapExpired, reaperIntervalMillis, reaperIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public synchronized void stopReaper() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+            reaper = null;
+        }
+    }
+    
+    public void setGatewayAgent(AgentController gatewayAgent) {
+        this.gatewayAgent = gatewayAgent;
+    }
+    
+    /** The accept-encoding value ApiGatewayAgent puts on listing requests, or null for JSON only. */
+    public String getListingEncoding() {
+        return GameBinaryCodec.isAccepted(listingEncoding) ? listingEncoding : null;
+    }
+    
+    public void setListingEncoding(String listingEncoding) {
+        this.listingEncoding = listingEncoding;
+    }
+    
+    /** Where putO2AObject leaves requests for ApiGatewayAgent; created on first use from the configured capacities. */
+    public synchronized GatewayQueue getRequestQueue() {
+        if (requestQueue == null) {
+            requestQueue = new GatewayQueue(searchQueueCapacity, pageQueueCapacity, scanQueueCapacity);
+            requestQueue.bindTo(GameStoreMetrics.registry());
+        }
+        return requestQueue;
+    }
+    
+    public int getMaxScansInFlight() {
+        return maxScansInFlight;
+    }
+    
+    public void setMaxScansInFlight(int maxScansInFlight) {
+        this.maxScansInFlight = maxScansInFlight;
+    }
+    
+    public String nextRequestId() {
+        return instanceId + "-" + sequence.incrementAndGet();
+    }
+    
+    public CompletableFuture<String> searchGame(String title) {
+        String requestId = nextRequestId();
+        CompletableFuture<String> future = new CompletableFuture<>();
+        pendingReplies.put(requestId, new SingleReply(future, deadline()));
+        
+        submit(new SearchGameRequest(title, requestId), future, requestId);
+        return future;
+    }
+    
+    public CompletableFuture<GameListing> getAllGamesFromSQLite() {
+        return getAllGamesFrom(Source.SQLITE);
+    }
+    
+    public CompletableFuture<GameListing> getAllGamesFromOntology() {
+        return getAllGamesFrom(Source.ONTOLOGY);
+    }
+    
+    /** One filtered page from SQLite; read the reply with GameListing.toPage. */
+    public CompletableFuture<GameListing> getGamesFromSQLite(GameQuery query) {
+        String requestId = nextRequestId();
+        CompletableFuture<GameListing> future = new CompletableFuture<>();
+        pendingReplies.put(requestId, new ListingReply(future, deadline()));
+        
+        submit(new GetAllGamesRequest(Source.SQLITE, requestId, null, query), future, requestId);
+        return future;
+    }
+    
+    private CompletableFuture<GameListing> getAllGamesFrom(Source source) {
+        String requestId = nextRequestId();
+        CompletableFuture<GameListing> future = new CompletableFuture<>();
+        pendingReplies.put(requestId, new ListingReply(future, deadline()));
+        
+        GetAllGamesRequest request = source == Source.SQLITE
+            ? new GetAllGamesRequest(source, requestId, null)
+            : new GetAllGamesRequest(source, null, requestId);
+        submit(request, future, requestId);
+        return future;
+    }
+    
+    /**
+     * Asks both agents at once. The future completes as soon as both have answered,
+     * or at the source deadline with whichever lists arrived; sources that failed or
+     * missed the deadline are reported by CombinedGamesResponse.getDegradedSources().
+     * It only fails when neither source answered.
+     */
+    public CompletableFuture<CombinedGamesResponse> getAllGamesFromBoth() {
+        String sqliteRequestId = nextRequestId();
+        String ontologyRequestId = nextRequestId();
+        CompletableFuture<CombinedGamesResponse> future = new CompletableFuture<>();
+        
+        CombinedReply combined = new CombinedReply(future);
+        long deadline = deadline();
+        pendingReplies.put(sqliteRequestId, new PartReply(combined, Source.SQLITE, deadline));
+        pendingReplies.put(ontologyRequestId, new PartReply(combined, Source.ONTOLOGY, deadline));
+        
+        submit(new GetAllGamesRequest(Source.BOTH, sqliteRequestId, ontologyRequestId),
+            future, sqliteRequestId, ontologyRequestId);
+        if (!future.isDone()) {
+            long waitMillis = sourceDeadlineMillis;
+            CompletableFuture.delayedExecutor(waitMillis, TimeUnit.MILLISECONDS)
+                .execute(() -> {
+                    if (combined.finish(new TimeoutException("Neither source replied within " + waitMillis + " ms"))) {
+                        expiredCount.incrementAndGet();
+                    }
+                });
+        }
+        return future;
+    }
+    
+    /**
+     * Streams a listing from one or both agents in chunks of at most chunkSize games.
+     * onChunk gets each source's chunks in order, on the JADE thread, so it must hand
+     * them off; once a chunk has been written out, confirmChunk lets the agent send
+     * more. The future completes after every source's last chunk; completing or
+     * cancelling it early stops the agents that are still sending.
+     */
+    public CompletableFuture<Void> streamAllGames(Source source, int chunkSize, Consumer<ListingChunk> onChunk) {
+        String sqliteRequestId = source != Source.ONTOLOGY ? nextRequestId() : null;
+        String ontologyRequestId = source != Source.SQLITE ? nextRequestId() : null;
+        List<StreamReply> streams = new ArrayList<>(2);
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(replyTimeoutMillis);
+        if (sqliteRequestId != null) {
+            streams.add(new StreamReply(Source.SQLITE, sqliteRequestId, onChunk, idleNanos));
+        }
+        if (ontologyRequestId != null) {
+            streams.add(new StreamReply(Source.ONTOLOGY, ontologyRequestId, onChunk, idleNanos));
+        }
+        
+        CompletableFuture<?>[] parts = new CompletableFuture<?>[streams.size()];
+        for (int i = 0; i < streams.size(); i++) {
+            StreamReply stream = streams.get(i);
+            pendingReplies.put(stream.requestId, stream);
+            parts[i] = stream.future;
+        }
+        CompletableFuture<Void> all = new CompletableFuture<>();
+        CompletableFuture.allOf(parts).whenComplete((done, error) -> {
+            if (error != null) {
+                all.completeExceptionally(error);
+            } else {
+                all.complete(null);
+            }
+        });
+        
+        // Whatever ends the stream early, agents still sending are told to stop
+        all.whenComplete((done, error) -> {
+            if (error != null) {
+                for (StreamReply stream : streams) {
+                    boolean finished = stream.future.isDone() && !stream.future.isCompletedExceptionally();
+                    pendingReplies.remove(stream.requestId, stream);
+                    if (!finished) {
+                        stream.fail(new CancellationException("Listing stream stopped"));
+                        sendStreamControl(new StreamControl(stream.source, stream.requestId, -1));
+                    }
+                }
+            }
+        });
+        
+        submit(new GetAllGamesRequest(source, sqliteRequestId, ontologyRequestId, null, chunkSize),
+            all, sqliteRequestId, ontologyRequestId);
+        return all;
+    }
+    
+    /** Tells the agent a streamed chunk has been written, which opens its window for another one. */
+    public void confirmChunk(ListingChunk chunk) {
+        PendingReply pending = pendingReplies.get(chunk.getRequestId());
+        if (pending instanceof StreamReply) {
+            ((StreamReply) pending).touch();
+            sendStreamControl(new StreamControl(chunk.getSource(), chunk.getRequestId(), chunk.getSeq()));
+        }
+    }
+    
+    private void sendStreamControl(StreamControl control) {
+        try {
+            gatewayAgent.putO2AObject(control, AgentController.ASYNC);
+        } catch (Exception e) {
+            log.warn("JadeGatewayService: could not send stream control for {}: {}", control.getRequestId(), e.getMessage());
+        }
+    }
+    
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(replyTimeoutMillis);
+    }
+    
+    private void submit(Object request, CompletableFuture<?> future, String... requestIds) {
+        try {
+            gatewayAgent.putO2AObject(request, AgentController.ASYNC);
+        } catch (Exception e) {
+            for (String requestId : requestIds) {
+                pendingReplies.remove(requestId);
+            }
+            future.completeExceptionally(e);
+        }
+    }
+    
+    /**
+     * Called by ApiGatewayAgent for every INFORM it receives. Returns false when
+     * no request is waiting for the ID, e.g. a duplicate reply.
+     */
+    public boolean receiveReply(String requestId, String content) {
+        PendingReply pending = claim(requestId);
+        if (pending == null) {
+            return false;
+        }
+        pending.complete(content);
+        return true;
+    }
+    
+    /** Same as receiveReply(String, String) for a listing sent in the binary encoding. */
+    public boolean receiveReply(String requestId, byte[] content) {
+        PendingReply pending = claim(requestId);
+        if (pending == null) {
+            return false;
+        }
+        pending.completeBinary(content);
+        return true;
+    }
+    
+    /** Called by ApiGatewayAgent for each chunk of a streamed listing. */
+    public boolean receiveChunk(String requestId, int seq, boolean last, GameListing content) {
+        PendingReply pending = pendingReplies.get(requestId);
+        if (!(pending instanceof StreamReply)) {
+            unknownReplyCount.incrementAndGet();
+            return false;
+        }
+        StreamReply stream = (StreamReply) pending;
+        if (stream.receive(seq, last, content)) {
+            pendingReplies.remove(requestId, stream);
+        }
+        return true;
+    }
+    
+    private PendingReply claim(String requestId) {
+        PendingReply pending = pendingReplies.remove(requestId);
+        if (pending == null) {
+            if (recentlyExpired.remove(requestId) != null) {
+                lateReplyCount.incrementAndGet();
+                log.warn("JadeGatewayService: Late reply for expired request ID: {}", requestId);
+            } else {
+                unknownReplyCount.incrementAndGet();
+                log.warn("JadeGatewayService: No pending request for reply ID: {}", requestId);
+            }
+        }
+        return pending;
+    }
+    
+    /**
+     * Called by ApiGatewayAgent when an agent answers with REFUSE or FAILURE, so the
+     * caller fails right away instead of waiting for the reaper.
+     */
+    public boolean receiveFailure(String requestId, boolean refused, String reason) {
+        PendingReply pending = pendingReplies.remove(requestId);
+        if (pending == null) {
+            unknownReplyCount.incrementAndGet();
+            return false;
+        }
+        // A refusal means the request itself was wrong; GameController answers it with 400
+        pending.fail(refused ? new IllegalArgumentException(reason) : new IllegalStateException(reason));
+        return true;
+    }
+    
+    // Fails every request whose deadline passed and drops its entry, including half-filled BOTH requests
+    void reapExpired() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, PendingReply>> it = pendingReplies.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, PendingReply> entry = it.next();
+            PendingReply pending = entry.getValue();
+            
+            // Callers that gave up and cancelled their future no longer need the entry either
+            if (pending.isAbandoned() || now - pending.deadline() > 0) {
+                if (pendingReplies.remove(entry.getKey(), pending)) {
+                    // Remembered either way, so a reply that still arrives counts as late rather than unknown
+                    recentlyExpired.put(entry.getKey(), now);
+                    // Only a caller still waiting expires: not one that cancelled, nor the second half of a BOTH request
+                    if (!pending.isAbandoned() && pending.expire(replyTimeoutMillis)) {
+                        expiredCount.incrementAndGet();
+                    }
+                }
+            }
+        }
+        
+        // Stop tracking expired IDs once a late reply is no longer plausible
+        long forgetBefore = now - TimeUnit.MILLISECONDS.toNanos(replyTimeoutMillis) * 3;
+        recentlyExpired.values().removeIf(expiredAt -> expiredAt - forgetBefore < 0);
+    }
+    
+    /**
+     * Whether a reply is still wanted for the ID: it has not been answered, its deadline
+     * has not passed and its caller has not given up. ApiGatewayAgent drops queued
+     * requests for which it is not, instead of sending them to the agents.
+     */
+    public boolean isPending(String requestId) {
+        PendingReply pending = pendingReplies.get(requestId);
+        return pending != null && !pending.isAbandoned() && System.nanoTime() - pending.deadline() <= 0;
+    }
+    
+    public int getPendingCount() {
+        return pendingReplies.size();
+    }
+    
+    public long getExpiredCount() { return expiredCount.get(); }
+    public long getLateReplyCount() { return lateReplyCount.get(); }
+    public long getUnknownReplyCount() { return unknownReplyCount.get(); }
+    
+    private interface PendingReply {
+        void complete(String content);
+        void completeBinary(byte[] content);
+        void fail(Exception error);
+        /** Fails the caller with a timeout; false when the caller had already been answered. */
+        boolean expire(long timeoutMillis);
+        long deadline();
+        boolean isAbandoned();
+    }
+    
+    private static class SingleReply implements PendingReply {
+        private final CompletableFuture<String> future;
+        private final long deadline;
+        
+        SingleReply(CompletableFuture<String> future, long deadline) {
+            this.future = future;
+            this.deadline = deadline;
+        }
+        
+        public void complete(String content) {
+            future.complete(content);
+        }
+        
+        public void completeBinary(byte[] content) {
+            future.completeExceptionally(new IllegalStateException("Unexpected binary reply to a search"));
+        }
+        
+        public void fail(Exception error) {
+            future.completeExceptionally(error);
+        }
+        
+        public boolean expire(long timeoutMillis) {
+            return future.completeExceptionally(new TimeoutException("No agent reply within " + timeoutMillis + " ms"));
+        }
+        
+        public long deadline() { return deadline; }
+        public boolean isAbandoned() { return future.isDone(); }
+    }
+    
+    // One source of a streamed listing; chunks are passed on in sequence order even if they arrive out of it
+    private static class StreamReply implements PendingReply {
+        private final Source source;
+        private final String requestId;
+        private final Consumer<ListingChunk> onChunk;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final TreeMap<Integer, ListingChunk> early = new TreeMap<>();
+        private final long idleNanos;
+        private volatile long deadline;
+        private int nextSeq;
+        
+        StreamReply(Source source, String requestId, Consumer<ListingChunk> onChunk, long idleNanos) {
+            this.source = source;
+            this.requestId = requestId;
+            this.onChunk = onChunk;
+            this.idleNanos = idleNanos;
+            touch();
+        }
+        
+        // Returns true once the last chunk has been passed on
+        synchronized boolean receive(int seq, boolean last, GameListing content) {
+            if (future.isDone() || seq < nextSeq) {
+                return future.isDone();
+            }
+            touch();
+            early.put(seq, new ListingChunk(source, requestId, seq, last, content));
+            ListingChunk chunk;
+            while ((chunk = early.remove(nextSeq)) != null) {
+                nextSeq++;
+                onChunk.accept(chunk);
+                if (chunk.isLast()) {
+                    early.clear();
+                    future.complete(null);
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        // An agent that does not stream answers with one plain reply; treat it as a single last chunk
+        public void complete(String content) {
+            receive(nextSeq, true, GameListing.ofJson(content));
+        }
+        
+        public void completeBinary(byte[] content) {
+            receive(nextSeq, true, GameListing.ofBinary(content));
+        }
+        
+        public void fail(Exception error) {
+            future.completeExceptionally(error);
+        }
+        
+        public boolean expire(long timeoutMillis) {
+            return future.completeExceptionally(new TimeoutException("No chunk from the " + source + " agent within " + timeoutMillis + " ms"));
+        }
+        
+        // Each chunk or confirmation gives the stream another full reply timeout
+        void touch() {
+            deadline = System.nanoTime() + idleNanos;
+        }
+        
+        public long deadline() { return deadline; }
+        public boolean isAbandoned() { return future.isDone(); }
+    }
+    
+    private static class ListingReply implements PendingReply {
+        private final CompletableFuture<GameListing> future;
+        private final long deadline;
+        
+        ListingReply(CompletableFuture<GameListing> future, long deadline) {
+            this.future = future;
+            this.deadline = deadline;
+        }
+        
+        public void complete(String content) {
+            future.complete(GameListing.ofJson(content));
+        }
+        
+        public void completeBinary(byte[] content) {
+            future.complete(GameListing.ofBinary(content));
+        }
+        
+        public void fail(Exception error) {
+            future.completeExceptionally(error);
+        }
+        
+        public boolean expire(long timeoutMillis) {
+            return future.completeExceptionally(new TimeoutException("No agent reply within " + timeoutMillis + " ms"));
+        }
+        
+        public long deadline() { return deadline; }
+        public boolean isAbandoned() { return future.isDone(); }
+    }
+    
+    // Gathers the SQLite and ontology halves of a BOTH request. A source that fails only
+    // degrades the answer; the request fails when no source produced a list at all.
+    private static class CombinedReply {
+        private static final int SOURCES = 2;
+        
+        private final CompletableFuture<CombinedGamesResponse> future;
+        private final Map<Source, GameListing> replies = new EnumMap<>(Source.class);
+        private final Map<Source, Exception> failures = new EnumMap<>(Source.class);
+        
+        CombinedReply(CompletableFuture<CombinedGamesResponse> future) {
+            this.future = future;
+        }
+        
+        boolean expire(long timeoutMillis) {
+            return finish(new TimeoutException("No agent replied within " + timeoutMillis + " ms"));
+        }
+        
+        synchronized void completePart(Source source, GameListing content) {
+            if (future.isDone()) {
+                return;
+            }
+            replies.put(source, content);
+            finishIfAllAnswered();
+        }
+        
+        synchronized void failPart(Source source, Exception error) {
+            if (future.isDone()) {
+                return;
+            }
+            failures.put(source, error);
+            finishIfAllAnswered();
+        }
+        
+        private void finishIfAllAnswered() {
+            if (replies.size() + failures.size() == SOURCES) {
+                finish(null);
+            }
+        }
+        
+        // Answers with whatever arrived; noReplies is used when nothing did and no source reported why.
+        // Returns true only in that last case, when the request as a whole expired
+        synchronized boolean finish(Exception noReplies) {
+            if (future.isDone()) {
+                return false;
+            }
+            boolean expired = false;
+            if (!replies.isEmpty()) {
+                future.complete(new CombinedGamesResponse(replies.get(Source.SQLITE), replies.get(Source.ONTOLOGY)));
+            } else if (!failures.isEmpty()) {
+                future.completeExceptionally(failures.values().iterator().next());
+            } else {
+                expired = future.completeExceptionally(noReplies);
+            }
+            replies.clear();
+            failures.clear();
+            return expired;
+        }
+    }
+    
+    private static class PartReply implements PendingReply {
+        private final CombinedReply combined;
+        private final Source source;
+        private final long deadline;
+        
+        PartReply(CombinedReply combined, Source source, long deadline) {
+            this.combined = combined;
+            this.source = source;
+            this.deadline = deadline;
+        }
+        
+        public void complete(String content) {
+            combined.completePart(source, GameListing.ofJson(content));
+        }
+        
+        public void completeBinary(byte[] content) {
+            combined.completePart(source, GameListing.ofBinary(content));
+        }
+        
+        public void fail(Exception error) {
+            combined.failPart(source, error);
+        }
+        
+        public boolean expire(long timeoutMillis) {
+            return combined.expire(timeoutMillis);
+        }
+        
+        public long deadline() { return deadline; }
+        public boolean isAbandoned() { return combined.future.isDone(); }
+    }
+    
+    public static class SearchGameRequest {
+        private String title;
+        private String requestId;
+        
+        public SearchGameRequest(String title, String requestId) {
+            this.title = title;
+            this.requestId = requestId;
+        }
+        
+        public String getTitle() { return title; }
+        public String getRequestId() { return requestId; }
+    }
+    
+    public static class GetAllGamesRequest {
+        private Source source;
+        private String sqliteRequestId;   // set when GameStop should be asked
+        private String ontologyRequestId; // set when Distributor should be asked
+        private GameQuery query;          // set when GameStop should return one page instead of everything
+        private int chunkSize;            // above 0 when the agents should stream chunks of this many games
+        
+        public GetAllGamesRequest(Source source, String sqliteRequestId, String ontologyRequestId) {
+            this(source, sqliteRequestId, ontologyRequestId, null);
+        }
+        
+        public GetAllGamesRequest(Source source, String sqliteRequestId, String ontologyRequestId, GameQuery query) {
+            this(source, sqliteRequestId, ontologyRequestId, query, 0);
+        }
+        
+        public GetAllGamesRequest(Source source, String sqliteRequestId, String ontologyRequestId,
+                                  GameQuery query, int chunkSize) {
+            this.source = source;
+            this.sqliteRequestId = sqliteRequestId;
+            this.ontologyRequestId = ontologyRequestId;
+            this.query = query;
+            this.chunkSize = chunkSize;
+        }
+        
+        public Source getSource() { return source; }
+        public String getSqliteRequestId() { return sqliteRequestId; }
+        public String getOntologyRequestId() { return ontologyRequestId; }
+        public GameQuery getQuery() { return query; }
+        public int getChunkSize() { return chunkSize; }
+    }
+    
+    // Confirms a streamed chunk (seq >= 0) or cancels the stream (seq < 0)
+    public static class StreamControl {
+        private Source source;
+        private String requestId;
+        private int seq;
+        
+        public StreamControl(Source source, String requestId, int seq) {
+            this.source = source;
+            this.requestId = requestId;
+            this.seq = seq;
+        }
+        
+        public Source getSource() { return source; }
+        public String getRequestId() { return requestId; }
+        public int getSeq() { return seq; }
+        public boolean isCancel() { return seq < 0; }
+    }
+    
+    public static class ListingChunk {
+        private Source source;
+        private String requestId;
+        private int seq;
+        private boolean last;
+        private GameListing games;
+        
+        public ListingChunk(Source source, String requestId, int seq, boolean last, GameListing games) {
+            this.source = source;
+            this.requestId = requestId;
+            this.seq = seq;
+            this.last = last;
+            this.games = games;
+        }
+        
+        public Source getSource() { return source; }
+        public String getRequestId() { return requestId; }
+        public int getSeq() { return seq; }
+        public boolean isLast() { return last; }
+        public GameListing getGames() { return games; }
+    }
+    
+    // A source's list is null when it failed or missed the source deadline
+    public static class CombinedGamesResponse {
+        private GameListing sqliteGames;
+        private GameListing ontologyGames;
+        
+        public CombinedGamesResponse(GameListing sqliteGames, GameListing ontologyGames) {
+            this.sqliteGames = sqliteGames;
+            this.ontologyGames = ontologyGames;
+        }
+        
+        public GameListing getSqliteGames() { return sqliteGames; }
+        public GameListing getOntologyGames() { return ontologyGames; }
+        
+        public List<Source> getDegradedSources() {
+            List<Source> degraded = new ArrayList<>(2);
+            if (sqliteGames == null) {
+                degraded.add(Source.SQLITE);
+            }
+            if (ontologyGames == null) {
+                degraded.add(Source.ONTOLOGY);
+            }
+            return degraded;
+        }
+        
+        public boolean isComplete() {
+            return sqliteGames != null && ontologyGames != null;
+        }
+    }
 }
\ No newline at end of file
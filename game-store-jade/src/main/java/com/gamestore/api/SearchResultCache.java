@@ -0,0 +1,157 @@
+package com.gamestore.api;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.gamestore.metrics.GameStoreMetrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+
+/**
+ * Read-through cache for title searches, keyed on the normalized title.
+ * Normalizing never makes two titles equal that the agents' lookups would tell
+ * apart, so a cached answer is always the one the loader gives for the raw title.
+ * Entries are evicted least-recently-used once maxSize is reached and expire
+ * after a TTL; NOT_FOUND answers use a shorter TTL. Concurrent searches for the
+ * same title while the first one is still in flight share its future.
+ */
+@Component
+public class SearchResultCache {
+    private static final String NOT_FOUND = "NOT_FOUND";
+
+    // An in-flight search older than this is treated as lost rather than joined
+    private static final long IN_FLIGHT_LIMIT_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public SearchResultCache(
+            @Value("${gamestore.cache.search.max-size:1000}") int maxSize,
+            @Value("${gamestore.cache.search.ttl-seconds:300}") long ttlSeconds,
+            @Value("${gamestore.cache.search.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SearchResultCache.Entry> eldest) {
+                if (size() > SearchResultCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        GameStoreMetrics.cacheGets("search", "gateway", this, SearchResultCache::getHits, SearchResultCache::getMisses);
+        FunctionCounter.builder("gamestore.cache.evictions", this, SearchResultCache::getEvictions)
+            .tags("cache", "search", "owner", "gateway")
+            .register(GameStoreMetrics.registry());
+        Gauge.builder("gamestore.cache.size", this, SearchResultCache::size)
+            .tags("cache", "search", "owner", "gateway")
+            .register(GameStoreMetrics.registry());
+    }
+
+    // Same as TitleIndex and LookupCache: inner whitespace is kept, since the exact-title
+    // match in SQLite and the ontology lookup both tell "The  Sims 4" from "The Sims 4"
+    public static String normalize(String title) {
+        return title.replace("\"", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    public CompletableFuture<String> get(String title, Function<String, CompletableFuture<String>> loader) {
+        String key = normalize(title);
+        long now = System.nanoTime();
+        Entry entry;
+
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.isUsable(now)) {
+                hits.incrementAndGet();
+                return entry.future;
+            }
+            misses.incrementAndGet();
+            entry = new Entry(now);
+            entries.put(key, entry);
+        }
+
+        // Load outside the lock so a slow agent round trip never blocks other titles
+        Entry loading = entry;
+        CompletableFuture<String> loaded;
+        try {
+            loaded = loader.apply(title);
+        } catch (RuntimeException e) {
+            loaded = new CompletableFuture<>();
+            loaded.completeExceptionally(e);
+        }
+
+        loaded.whenComplete((result, error) -> {
+            if (error != null) {
+                // Never cache failures; the next caller retries
+                remove(key, loading);
+                loading.future.completeExceptionally(error);
+            } else {
+                long ttl = NOT_FOUND.equals(result) ? negativeTtlNanos : ttlNanos;
+                loading.expiresAt = System.nanoTime() + ttl;
+                loading.future.complete(result);
+            }
+        });
+        return loading.future;
+    }
+
+    public synchronized void invalidate(String title) {
+        entries.remove(normalize(title));
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    private synchronized void remove(String key, Entry expected) {
+        if (entries.get(key) == expected) {
+            entries.remove(key);
+        }
+    }
+
+    public synchronized int size() { return entries.size(); }
+    public int getMaxSize() { return maxSize; }
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    private static class Entry {
+        private final long createdAt;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(long createdAt) {
+            this.createdAt = createdAt;
+        }
+
+        boolean isUsable(long now) {
+            if (expiresAt == Long.MAX_VALUE) {
+                return now - createdAt < IN_FLIGHT_LIMIT_NANOS;
+            }
+            return now - expiresAt < 0;
+        }
+    }
+}
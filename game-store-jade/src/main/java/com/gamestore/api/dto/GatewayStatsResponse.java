@@ -0,0 +1,40 @@
+package com.gamestore.api.dto;
+
+import java.util.Map;
+
+public class GatewayStatsResponse {
+    private int pendingReplies;
+    private long expiredRequests;
+    private long lateReplies;
+    private long unknownReplies;
+    private Map<String, Integer> queueDepth;
+    private Map<String, Long> rejectedRequests;
+    private Map<String, Long> droppedRequests;
+    private int scansInFlight;
+
+    public GatewayStatsResponse() {}
+
+    public GatewayStatsResponse(int pendingReplies, long expiredRequests, long lateReplies, long unknownReplies) {
+        this.pendingReplies = pendingReplies;
+        this.expiredRequests = expiredRequests;
+        this.lateReplies = lateReplies;
+        this.unknownReplies = unknownReplies;
+    }
+
+    public int getPendingReplies() { return pendingReplies; }
+    public void setPendingReplies(int pendingReplies) { this.pendingReplies = pendingReplies; }
+    public long getExpiredRequests() { return expiredRequests; }
+    public void setExpiredRequests(long expiredRequests) { this.expiredRequests = expiredRequests; }
+    public long getLateReplies() { return lateReplies; }
+    public void setLateReplies(long lateReplies) { this.lateReplies = lateReplies; }
+    public long getUnknownReplies() { return unknownReplies; }
+    public void setUnknownReplies(long unknownReplies) { this.unknownReplies = unknownReplies; }
+    public Map<String, Integer> getQueueDepth() { return queueDepth; }
+    public void setQueueDepth(Map<String, Integer> queueDepth) { this.queueDepth = queueDepth; }
+    public Map<String, Long> getRejectedRequests() { return rejectedRequests; }
+    public void setRejectedRequests(Map<String, Long> rejectedRequests) { this.rejectedRequests = rejectedRequests; }
+    public Map<String, Long> getDroppedRequests() { return droppedRequests; }
+    public void setDroppedRequests(Map<String, Long> droppedRequests) { this.droppedRequests = droppedRequests; }
+    public int getScansInFlight() { return scansInFlight; }
+    public void setScansInFlight(int scansInFlight) { this.scansInFlight = scansInFlight; }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.gamestore.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to Java 21 virtual threads from code that still compiles for Java 11.
+ * They are only used when the JVM is started with -Dgamestore.threads.virtual=true
+ * and the running JDK provides them; otherwise everything stays on platform threads.
+ */
+public final class VirtualThreads {
+    public static final String PROPERTY = "gamestore.threads.virtual";
+
+    private static final Method NEW_PER_TASK_EXECUTOR = lookupFactory();
+
+    private VirtualThreads() {}
+
+    public static boolean isSupported() {
+        return NEW_PER_TASK_EXECUTOR != null;
+    }
+
+    public static boolean isRequested() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    public static boolean isEnabled() {
+        return isRequested() && isSupported();
+    }
+
+    public static ExecutorService newPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException(
+                "Virtual threads need Java 21 or newer, running on " + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    private static Method lookupFactory() {
+        // Java 19 and 20 have the method too, but only as a preview feature
+        if (Runtime.version().feature() < 21) {
+            return null;
+        }
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.gamestore.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connection settings read from game_db.properties on the classpath.
+ * Blank or missing entries fall back to the defaults below.
+ */
+public class DatabaseConfig {
+    private static final Logger log = LoggerFactory.getLogger(DatabaseConfig.class);
+
+    private static final String CONFIG_RESOURCE = "/game_db.properties";
+
+    private String url = "jdbc:sqlite:gamestop.db";
+    private String driver = "org.sqlite.JDBC";
+    private String user;
+    private String password;
+    private int poolSize = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private long borrowTimeoutMillis = 5000;
+    private String journalMode = "WAL";
+    private int busyTimeoutMillis = 5000;
+    private int lookupWorkers = -1;
+    private int lookupQueueSize = 256;
+    private int distributorLookupWorkers = 1;
+    private String searchHedge = "off";
+    private long hedgeMinDelayMillis = 1;
+    private long hedgeMaxDelayMillis = 250;
+    private long ontologySyncIntervalMillis = 30000;
+    private int lookupCacheSize = 512;
+    private long lookupCacheTtlMillis = 60000;
+
+    public static DatabaseConfig load() {
+        DatabaseConfig config = new DatabaseConfig();
+        Properties props = new Properties();
+
+        try (InputStream in = DatabaseConfig.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) {
+                props.load(in);
+            }
+        } catch (IOException e) {
+            log.error("Error reading {}: {}", CONFIG_RESOURCE, e.getMessage());
+        }
+
+        config.url = value(props, "jdbc.url", config.url);
+        config.driver = value(props, "jdbc.driver", config.driver);
+        config.user = value(props, "jdbc.user", null);
+        config.password = value(props, "jdbc.password", null);
+        config.poolSize = Integer.parseInt(value(props, "jdbc.pool.size", String.valueOf(config.poolSize)));
+        config.borrowTimeoutMillis = Long.parseLong(
+            value(props, "jdbc.pool.borrowTimeoutMillis", String.valueOf(config.borrowTimeoutMillis)));
+        config.journalMode = value(props, "sqlite.journalMode", config.journalMode);
+        config.busyTimeoutMillis = Integer.parseInt(
+            value(props, "sqlite.busyTimeoutMillis", String.valueOf(config.busyTimeoutMillis)));
+        // One worker per pooled connection unless configured otherwise; 0 keeps lookups on the agent thread
+        config.lookupWorkers = Integer.parseInt(value(props, "lookup.workers", String.valueOf(config.poolSize)));
+        config.lookupQueueSize = Integer.parseInt(
+            value(props, "lookup.queueSize", String.valueOf(config.lookupQueueSize)));
+        config.distributorLookupWorkers = Integer.parseInt(
+            value(props, "distributor.lookup.workers", String.valueOf(config.distributorLookupWorkers)));
+        config.searchHedge = value(props, "search.hedge", config.searchHedge);
+        config.hedgeMinDelayMillis = Long.parseLong(
+            value(props, "search.hedge.minDelayMillis", String.valueOf(config.hedgeMinDelayMillis)));
+        config.hedgeMaxDelayMillis = Long.parseLong(
+            value(props, "search.hedge.maxDelayMillis", String.valueOf(config.hedgeMaxDelayMillis)));
+        config.ontologySyncIntervalMillis = Long.parseLong(
+            value(props, "ontology.sync.intervalMillis", String.valueOf(config.ontologySyncIntervalMillis)));
+        config.lookupCacheSize = Integer.parseInt(
+            value(props, "lookup.cache.size", String.valueOf(config.lookupCacheSize)));
+        config.lookupCacheTtlMillis = Long.parseLong(
+            value(props, "lookup.cache.ttlMillis", String.valueOf(config.lookupCacheTtlMillis)));
+        return config;
+    }
+
+    private static String value(Properties props, String key, String defaultValue) {
+        // System properties win so a single run can be re-pointed without editing the file
+        String value = System.getProperty("gamestore." + key, props.getProperty(key));
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    public DatabaseConfig withUrl(String url) {
+        DatabaseConfig copy = copy();
+        copy.url = url;
+        return copy;
+    }
+
+    public DatabaseConfig withPoolSize(int poolSize) {
+        DatabaseConfig copy = copy();
+        copy.poolSize = poolSize;
+        return copy;
+    }
+
+    private DatabaseConfig copy() {
+        DatabaseConfig copy = new DatabaseConfig();
+        copy.url = url;
+        copy.driver = driver;
+        copy.user = user;
+        copy.password = password;
+        copy.poolSize = poolSize;
+        copy.borrowTimeoutMillis = borrowTimeoutMillis;
+        copy.journalMode = journalMode;
+        copy.busyTimeoutMillis = busyTimeoutMillis;
+        copy.lookupWorkers = lookupWorkers;
+        copy.lookupQueueSize = lookupQueueSize;
+        copy.distributorLookupWorkers = distributorLookupWorkers;
+        copy.searchHedge = searchHedge;
+        copy.hedgeMinDelayMillis = hedgeMinDelayMillis;
+        copy.hedgeMaxDelayMillis = hedgeMaxDelayMillis;
+        copy.ontologySyncIntervalMillis = ontologySyncIntervalMillis;
+        copy.lookupCacheSize = lookupCacheSize;
+        copy.lookupCacheTtlMillis = lookupCacheTtlMillis;
+        return copy;
+    }
+
+    public String getUrl() { return url; }
+    public String getDriver() { return driver; }
+    public String getUser() { return user; }
+    public String getPassword() { return password; }
+    public int getPoolSize() { return poolSize; }
+    public long getBorrowTimeoutMillis() { return borrowTimeoutMillis; }
+    public String getJournalMode() { return journalMode; }
+    public int getBusyTimeoutMillis() { return busyTimeoutMillis; }
+    public int getLookupWorkers() { return lookupWorkers < 0 ? poolSize : lookupWorkers; }
+    public int getLookupQueueSize() { return lookupQueueSize; }
+    public int getDistributorLookupWorkers() { return distributorLookupWorkers; }
+    public String getSearchHedge() { return searchHedge; }
+    public long getHedgeMinDelayMillis() { return hedgeMinDelayMillis; }
+    public long getHedgeMaxDelayMillis() { return hedgeMaxDelayMillis; }
+    public long getOntologySyncIntervalMillis() { return ontologySyncIntervalMillis; }
+    public int getLookupCacheSize() { return lookupCacheSize; }
+    public long getLookupCacheTtlMillis() { return lookupCacheTtlMillis; }
+}
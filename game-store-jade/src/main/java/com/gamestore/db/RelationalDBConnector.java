@@ -1,381 +1,772 @@
-package com.gamestore.db;
-
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.List;
-
-import com.gamestore.model.Game;
-
-public class RelationalDBConnector {
-    private Connection connection;
-    private static final String DB_URL = "jdbc:sqlite:gamestop.db";
-    
-    public RelationalDBConnector() {
-        try {
-            // Create connection
-            connection = DriverManager.getConnection(DB_URL);
-            System.out.println("Connected to SQLite database successfully");
-            
-            // Initialize the database if it doesn't exist
-            initializeDatabase();
-            
-        } catch (SQLException e) {
-            System.err.println("Error connecting to database: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-    
-    private void initializeDatabase() {
-        try {
-            Statement stmt = connection.createStatement();
-            
-            // Create games table if it doesn't exist
-            stmt.execute(
-                "CREATE TABLE IF NOT EXISTS games (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                "title TEXT NOT NULL," +
-                "genre TEXT NOT NULL," +
-                "price REAL NOT NULL," +
-                "stock INTEGER NOT NULL," +
-                "release_date TEXT," +
-                "esrb_rating TEXT," +
-                "description TEXT," +
-                "publisher TEXT," +
-                "developer TEXT" +
-                ")"
-            );
-            
-            // Create platforms table if it doesn't exist
-            stmt.execute(
-                "CREATE TABLE IF NOT EXISTS game_platforms (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                "game_id INTEGER NOT NULL," +
-                "platform_name TEXT NOT NULL," +
-                "FOREIGN KEY (game_id) REFERENCES games (id)" +
-                ")"
-            );
-            
-            // Create features table if it doesn't exist
-            stmt.execute(
-                "CREATE TABLE IF NOT EXISTS game_features (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                "game_id INTEGER NOT NULL," +
-                "feature_name TEXT NOT NULL," +
-                "FOREIGN KEY (game_id) REFERENCES games (id)" +
-                ")"
-            );
-            
-            // Check if we have any sample data, if not, insert some
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM games");
-            if (rs.next() && rs.getInt(1) == 0) {
-                insertSampleData();
-            }
-            
-            stmt.close();
-        } catch (SQLException e) {
-            System.err.println("Error initializing database: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-    
-    private void insertSampleData() {
-        try {
-            // Insert sample games
-            PreparedStatement insertGame = connection.prepareStatement(
-                "INSERT INTO games (title, genre, price, stock, release_date, esrb_rating, description, publisher, developer) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS
-            );
-            
-            // Elden Ring( Also in Ontology)
-            insertGame.setString(1, "Elden Ring");
-            insertGame.setString(2, "RolePlaying");
-            insertGame.setDouble(3, 59.99);
-            insertGame.setInt(4, 10);
-            insertGame.setString(5, "2022-02-25");
-            insertGame.setString(6, "M");
-            insertGame.setString(7, "An open-world action RPG created in collaboration with George R.R. Martin");
-            insertGame.setString(8, "FromSoftware");
-            insertGame.setString(9, "FromSoftware");
-            insertGame.executeUpdate();
-            
-            ResultSet rs = insertGame.getGeneratedKeys();
-            if (rs.next()) {
-                int eldenRingId = rs.getInt(1);
-                
-                // Add platforms for Elden Ring
-                addPlatform(eldenRingId, "PlayStation 5");
-                addPlatform(eldenRingId, "Xbox Series X");
-                addPlatform(eldenRingId, "Windows PC");
-                
-                // Add features for Elden Ring
-                addFeature(eldenRingId, "Online Multiplayer");
-            }
-            
-            // Add more games that aren't in the ontology
-            insertGame.setString(1, "Call of Duty: Modern Warfare");
-            insertGame.setString(2, "Action");
-            insertGame.setDouble(3, 69.99);
-            insertGame.setInt(4, 15);
-            insertGame.setString(5, "2019-10-25");
-            insertGame.setString(6, "M");
-            insertGame.setString(7, "First-person shooter developed by Infinity Ward");
-            insertGame.setString(8, "Activision");
-            insertGame.setString(9, "Infinity Ward");
-            insertGame.executeUpdate();
-            
-            rs = insertGame.getGeneratedKeys();
-            if (rs.next()) {
-                int codId = rs.getInt(1);
-                
-                // Add platforms for COD
-                addPlatform(codId, "PlayStation 5");
-                addPlatform(codId, "Xbox Series X");
-                addPlatform(codId, "Windows PC");
-                
-                // Add features for COD
-                addFeature(codId, "Online Multiplayer");
-                addFeature(codId, "Campaign Mode");
-            }
-            
-            insertGame.setString(1, "Animal Crossing: New Horizons");
-            insertGame.setString(2, "Simulation");
-            insertGame.setDouble(3, 49.99);
-            insertGame.setInt(4, 20);
-            insertGame.setString(5, "2020-03-20");
-            insertGame.setString(6, "E");
-            insertGame.setString(7, "Life simulation game developed by Nintendo");
-            insertGame.setString(8, "Nintendo");
-            insertGame.setString(9, "Nintendo");
-            insertGame.executeUpdate();
-            
-            rs = insertGame.getGeneratedKeys();
-            if (rs.next()) {
-                int acId = rs.getInt(1);
-                
-                // Add platforms for Animal Crossing
-                addPlatform(acId, "Nintendo Switch");
-                
-                // Add features for Animal Crossing
-                addFeature(acId, "Online Multiplayer");
-                addFeature(acId, "Seasonal Events");
-            }
-            
-            System.out.println("Sample data inserted successfully");
-            
-        } catch (SQLException e) {
-            System.err.println("Error inserting sample data: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-    
-    private void addPlatform(int gameId, String platformName) throws SQLException {
-        PreparedStatement stmt = connection.prepareStatement(
-            "INSERT INTO game_platforms (game_id, platform_name) VALUES (?, ?)"
-        );
-        stmt.setInt(1, gameId);
-        stmt.setString(2, platformName);
-        stmt.executeUpdate();
-        stmt.close();
-    }
-    
-    private void addFeature(int gameId, String featureName) throws SQLException {
-        PreparedStatement stmt = connection.prepareStatement(
-            "INSERT INTO game_features (game_id, feature_name) VALUES (?, ?)"
-        );
-        stmt.setInt(1, gameId);
-        stmt.setString(2, featureName);
-        stmt.executeUpdate();
-        stmt.close();
-    }
-    
-    public Game findGame(String title) {
-        try {
-            String cleanTitle = title.replace("\"", "");
-            
-            PreparedStatement stmt = connection.prepareStatement(
-                "SELECT * FROM games WHERE title LIKE ?"
-            );
-            stmt.setString(1, "%" + cleanTitle + "%");
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                Game game = new Game(
-                    rs.getInt("id"),
-                    rs.getString("title"),
-                    rs.getString("genre"),
-                    rs.getDouble("price"),
-                    rs.getInt("stock")
-                );
-                
-                game.setSource("SQLite Database");
-                
-                if (rs.getString("release_date") != null) {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                    try {
-                        game.setReleaseDate(sdf.parse(rs.getString("release_date")));
-                    } catch (ParseException e) {
-                        System.err.println("Error parsing date: " + e.getMessage());
-                    }
-                }
-                if (rs.getString("esrb_rating") != null) {
-                    game.setEsrbRating(rs.getString("esrb_rating"));
-                }
-                if (rs.getString("description") != null) {
-                    game.setDescription(rs.getString("description"));
-                }
-                if (rs.getString("publisher") != null) {
-                    game.setPublisher(rs.getString("publisher"));
-                }
-                if (rs.getString("developer") != null) {
-                    game.setDeveloper(rs.getString("developer"));
-                }
-                
-                PreparedStatement platformStmt = connection.prepareStatement(
-                    "SELECT platform_name FROM game_platforms WHERE game_id = ?"
-                );
-                platformStmt.setInt(1, game.getId());
-                ResultSet platformRs = platformStmt.executeQuery();
-                
-                while (platformRs.next()) {
-                    game.addPlatform(platformRs.getString("platform_name"));
-                }
-                platformStmt.close();
-                
-                PreparedStatement featureStmt = connection.prepareStatement(
-                    "SELECT feature_name FROM game_features WHERE game_id = ?"
-                );
-                featureStmt.setInt(1, game.getId());
-                ResultSet featureRs = featureStmt.executeQuery();
-                
-                while (featureRs.next()) {
-                    game.addFeature(featureRs.getString("feature_name"));
-                }
-                featureStmt.close();
-                
-                stmt.close();
-                return game;
-            }
-            
-            stmt.close();
-        } catch (SQLException e) {
-            System.err.println("Error querying database: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return null;
-    }
-    
-    public List<Game> findGamesByGenre(String genre) {
-        List<Game> games = new ArrayList<>();
-        try {
-            PreparedStatement stmt = connection.prepareStatement(
-                "SELECT * FROM games WHERE genre LIKE ?"
-            );
-            stmt.setString(1, "%" + genre + "%");
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                Game game = new Game(
-                    rs.getInt("id"),
-                    rs.getString("title"),
-                    rs.getString("genre"),
-                    rs.getDouble("price"),
-                    rs.getInt("stock")
-                );
-                games.add(game);
-            }
-            
-            stmt.close();
-        } catch (SQLException e) {
-            System.err.println("Error querying database: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return games;
-    }
-    public List<Game> getAllGames() {
-        List<Game> games = new ArrayList<>();
-        try {
-            Statement stmt = connection.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT * FROM games ORDER BY title");
-            
-            while (rs.next()) {
-                Game game = new Game(
-                    rs.getInt("id"),
-                    rs.getString("title"),
-                    rs.getString("genre"),
-                    rs.getDouble("price"),
-                    rs.getInt("stock")
-                );
-                
-                game.setSource("SQLite Database");
-                
-                if (rs.getString("release_date") != null) {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                    try {
-                        game.setReleaseDate(sdf.parse(rs.getString("release_date")));
-                    } catch (ParseException e) {
-                        System.err.println("Error parsing date: " + e.getMessage());
-                    }
-                }
-                if (rs.getString("esrb_rating") != null) {
-                    game.setEsrbRating(rs.getString("esrb_rating"));
-                }
-                if (rs.getString("description") != null) {
-                    game.setDescription(rs.getString("description"));
-                }
-                if (rs.getString("publisher") != null) {
-                    game.setPublisher(rs.getString("publisher"));
-                }
-                if (rs.getString("developer") != null) {
-                    game.setDeveloper(rs.getString("developer"));
-                }
-                
-                PreparedStatement platformStmt = connection.prepareStatement(
-                    "SELECT platform_name FROM game_platforms WHERE game_id = ?");
-                platformStmt.setInt(1, game.getId());
-                ResultSet platformRs = platformStmt.executeQuery();
-                
-                while (platformRs.next()) {
-                    game.addPlatform(platformRs.getString("platform_name"));
-                }
-                platformStmt.close();
-                
-                PreparedStatement featureStmt = connection.prepareStatement(
-                    "SELECT feature_name FROM game_features WHERE game_id = ?");
-                featureStmt.setInt(1, game.getId());
-                ResultSet featureRs = featureStmt.executeQuery();
-                
-                while (featureRs.next()) {
-                    game.addFeature(featureRs.getString("feature_name"));
-                }
-                featureStmt.close();
-                
-                games.add(game);
-            }
-            
-            stmt.close();
-        } catch (SQLException e) {
-            System.err.println("Error querying all games: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return games;
-    }
-    public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
+package com.gamestore.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.db.SQLiteConnectionPool.PooledConnection;
+import com.gamestore.metrics.GameStoreMetrics;
+import com.gamestore.model.Game;
+import com.gamestore.model.GamePage;
+import com.gamestore.model.GameQuery;
+import com.gamestore.model.GameQuery.Cursor;
+import com.gamestore.model.GameQuery.Sort;
+
+import io.micrometer.core.instrument.Timer;
+
+public class RelationalDBConnector {
+    private static final Logger log = LoggerFactory.getLogger(RelationalDBConnector.class);
+    
+    private SQLiteConnectionPool pool;
+    private volatile boolean fullTextSearch;
+    
+    // Title lookups also see games mirrored from other stores, but prefer the local catalog's own row
+    private static final String FIND_BY_TITLE_SQL = "SELECT * FROM games WHERE title LIKE ? ORDER BY source_key IS NOT NULL, id";
+    private static final String FIND_BY_EXACT_TITLE_SQL =
+        "SELECT * FROM games WHERE title = ? COLLATE NOCASE ORDER BY source_key IS NOT NULL, id LIMIT 1";
+    private static final String FIND_BY_GENRE_SQL = "SELECT * FROM games WHERE genre LIKE ? AND source_key IS NULL";
+    private static final String FIND_BY_EXACT_GENRE_SQL =
+        "SELECT * FROM games WHERE genre = ? COLLATE NOCASE AND source_key IS NULL ORDER BY title COLLATE NOCASE";
+    
+    // Best-ranked title match; among equally ranked titles the shortest, i.e. closest, one wins
+    private static final String FIND_BY_TITLE_FTS_SQL =
+        "SELECT g.* FROM games_fts JOIN games g ON g.id = games_fts.rowid " +
+        "WHERE games_fts MATCH ? ORDER BY bm25(games_fts), length(g.title), g.source_key IS NOT NULL LIMIT 1";
+    // Ranked search over all indexed columns; a title hit weighs more than a publisher or description hit
+    private static final String SEARCH_FTS_SQL =
+        "SELECT g.* FROM games_fts JOIN games g ON g.id = games_fts.rowid " +
+        "WHERE games_fts MATCH ? ORDER BY bm25(games_fts, 10.0, 1.0, 3.0, 3.0) LIMIT ?";
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    
+    private static final Timer FIND_GAME_TIMER = GameStoreMetrics.dbQuery("findGame");
+    private static final Timer SEARCH_GAMES_TIMER = GameStoreMetrics.dbQuery("searchGames");
+    private static final Timer FIND_BY_GENRE_TIMER = GameStoreMetrics.dbQuery("findGamesByGenre");
+    private static final Timer ALL_GAMES_TIMER = GameStoreMetrics.dbQuery("getAllGames");
+    private static final Timer FIND_GAMES_TIMER = GameStoreMetrics.dbQuery("findGames");
+    private static final Timer MIRRORED_CHECKSUMS_TIMER = GameStoreMetrics.dbQuery("getMirroredChecksums");
+    private static final Timer UPDATE_MIRRORED_TIMER = GameStoreMetrics.dbQuery("updateMirroredGames");
+    
+    // Listings are the local catalog only; mirrored games are served by the store they came from
+    private static final String ALL_GAMES_SQL = "SELECT * FROM games WHERE source_key IS NULL ORDER BY title COLLATE NOCASE";
+    private static final String PLATFORMS_FOR_GAME_SQL = "SELECT platform_name FROM game_platforms WHERE game_id = ?";
+    private static final String FEATURES_FOR_GAME_SQL = "SELECT feature_name FROM game_features WHERE game_id = ?";
+    private static final String ALL_PLATFORMS_SQL = "SELECT game_id, platform_name FROM game_platforms ORDER BY id";
+    private static final String ALL_FEATURES_SQL = "SELECT game_id, feature_name FROM game_features ORDER BY id";
+    private static final String INSERT_PLATFORM_SQL = "INSERT INTO game_platforms (game_id, platform_name) VALUES (?, ?)";
+    private static final String INSERT_FEATURE_SQL = "INSERT INTO game_features (game_id, feature_name) VALUES (?, ?)";
+    
+    private static final String MIRRORED_CHECKSUMS_SQL = "SELECT source_key, checksum FROM games WHERE source = ? AND source_key IS NOT NULL";
+    private static final String UPSERT_MIRRORED_SQL =
+        "INSERT INTO games (title, genre, price, stock, release_date, esrb_rating, description, publisher, developer, source, source_key, checksum) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (source_key) WHERE source_key IS NOT NULL DO UPDATE SET title = excluded.title, genre = excluded.genre, price = excluded.price, " +
+        "stock = excluded.stock, release_date = excluded.release_date, esrb_rating = excluded.esrb_rating, " +
+        "description = excluded.description, publisher = excluded.publisher, developer = excluded.developer, " +
+        "source = excluded.source, checksum = excluded.checksum";
+    private static final String MIRRORED_ID_SQL = "SELECT id FROM games WHERE source_key = ?";
+    private static final String DELETE_PLATFORMS_SQL = "DELETE FROM game_platforms WHERE game_id = ?";
+    private static final String DELETE_FEATURES_SQL = "DELETE FROM game_features WHERE game_id = ?";
+    private static final String DELETE_GAME_SQL = "DELETE FROM games WHERE id = ?";
+    
+    // Columns added after the first release; databases created before them are migrated on startup
+    private static final String[][] MIRROR_COLUMNS = {
+        {"source", "TEXT"},
+        {"source_key", "TEXT"},
+        {"checksum", "TEXT"}
+    };
+    
+    // Indexes behind the filtered, keyset-paginated listing in findGames
+    private static final String[] LISTING_INDEXES = {
+        "CREATE INDEX IF NOT EXISTS idx_games_title ON games (title COLLATE NOCASE)",
+        "CREATE INDEX IF NOT EXISTS idx_games_price ON games (price)",
+        "CREATE INDEX IF NOT EXISTS idx_games_genre_title ON games (genre COLLATE NOCASE, title COLLATE NOCASE)",
+        "CREATE INDEX IF NOT EXISTS idx_game_platforms_name ON game_platforms (platform_name COLLATE NOCASE, game_id)",
+        "CREATE INDEX IF NOT EXISTS idx_game_platforms_game ON game_platforms (game_id)",
+        "CREATE INDEX IF NOT EXISTS idx_game_features_game ON game_features (game_id)"
+    };
+    
+    // External-content FTS5 index over the searchable text, kept in step with games by triggers
+    private static final String[] FULL_TEXT_SCHEMA = {
+        "CREATE VIRTUAL TABLE IF NOT EXISTS games_fts USING fts5(" +
+            "title, description, publisher, developer, content='games', content_rowid='id', prefix='2 3 4 5 6')",
+        "CREATE TRIGGER IF NOT EXISTS games_fts_insert AFTER INSERT ON games BEGIN " +
+            "INSERT INTO games_fts (rowid, title, description, publisher, developer) " +
+            "VALUES (new.id, new.title, new.description, new.publisher, new.developer); END",
+        "CREATE TRIGGER IF NOT EXISTS games_fts_delete AFTER DELETE ON games BEGIN " +
+            "INSERT INTO games_fts (games_fts, rowid, title, description, publisher, developer) " +
+            "VALUES ('delete', old.id, old.title, old.description, old.publisher, old.developer); END",
+        "CREATE TRIGGER IF NOT EXISTS games_fts_update AFTER UPDATE ON games BEGIN " +
+            "INSERT INTO games_fts (games_fts, rowid, title, description, publisher, developer) " +
+            "VALUES ('delete', old.id, old.title, old.description, old.publisher, old.developer); " +
+            "INSERT INTO games_fts (rowid, title, description, publisher, developer) " +
+            "VALUES (new.id, new.title, new.description, new.publisher, new.developer); END"
+    };
+    
+    public RelationalDBConnector() {
+        this(DatabaseConfig.load());
+    }
+    
+    public RelationalDBConnector(String dbUrl) {
+        this(DatabaseConfig.load().withUrl(dbUrl));
+    }
+    
+    public RelationalDBConnector(DatabaseConfig config) {
+        try {
+            // Open the connection pool
+            pool = new SQLiteConnectionPool(config);
+            log.info("Connected to SQLite database successfully (pool size {}, journal mode {})",
+                pool.getPoolSize(), config.getJournalMode());
+            
+            // Initialize the database if it doesn't exist
+            initializeDatabase();
+            
+        } catch (SQLException e) {
+            log.error("Error connecting to database", e);
+        }
+    }
+    
+    private void initializeDatabase() {
+        try (PooledConnection conn = pool.borrow()) {
+            Statement stmt = conn.getConnection().createStatement();
+            
+            // One write transaction, so agents opening the same database at once take turns
+            // instead of racing each other through the migrations and the sample data
+            stmt.execute("BEGIN IMMEDIATE");
+            boolean committed = false;
+            try {
+                // Create games table if it doesn't exist
+                stmt.execute(
+                    "CREATE TABLE IF NOT EXISTS games (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "title TEXT NOT NULL," +
+                    "genre TEXT NOT NULL," +
+                    "price REAL NOT NULL," +
+                    "stock INTEGER NOT NULL," +
+                    "release_date TEXT," +
+                    "esrb_rating TEXT," +
+                    "description TEXT," +
+                    "publisher TEXT," +
+                    "developer TEXT," +
+                    "source TEXT," +
+                    "source_key TEXT," +
+                    "checksum TEXT" +
+                    ")"
+                );
+                addMissingColumns(stmt);
+                // Partial, so local rows stay out of it and the planner never picks it for "source_key IS NULL"
+                stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_games_source_key ON games (source_key) WHERE source_key IS NOT NULL");
+                
+                // Create platforms table if it doesn't exist
+                stmt.execute(
+                    "CREATE TABLE IF NOT EXISTS game_platforms (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "game_id INTEGER NOT NULL," +
+                    "platform_name TEXT NOT NULL," +
+                    "FOREIGN KEY (game_id) REFERENCES games (id)" +
+                    ")"
+                );
+                
+                // Create features table if it doesn't exist
+                stmt.execute(
+                    "CREATE TABLE IF NOT EXISTS game_features (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "game_id INTEGER NOT NULL," +
+                    "feature_name TEXT NOT NULL," +
+                    "FOREIGN KEY (game_id) REFERENCES games (id)" +
+                    ")"
+                );
+                
+                for (String index : LISTING_INDEXES) {
+                    stmt.execute(index);
+                }
+                
+                // Before the sample data, so the triggers index it as it is inserted
+                initializeFullTextSearch(stmt);
+                
+                // Check if we have any sample data, if not, insert some
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM games");
+                if (rs.next() && rs.getInt(1) == 0) {
+                    insertSampleData(conn);
+                }
+                rs.close();
+                
+                stmt.execute("COMMIT");
+                committed = true;
+            } finally {
+                if (!committed) {
+                    stmt.execute("ROLLBACK");
+                }
+            }
+            
+            stmt.close();
+        } catch (SQLException e) {
+            log.error("Error initializing database", e);
+        }
+    }
+    
+    private void addMissingColumns(Statement stmt) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        ResultSet rs = stmt.executeQuery("PRAGMA table_info(games)");
+        while (rs.next()) {
+            columns.add(rs.getString("name"));
+        }
+        rs.close();
+        
+        for (String[] column : MIRROR_COLUMNS) {
+            if (!columns.contains(column[0])) {
+                stmt.execute("ALTER TABLE games ADD COLUMN " + column[0] + " " + column[1]);
+                log.info("Added column games.{}", column[0]);
+            }
+        }
+    }
+    
+    private void initializeFullTextSearch(Statement stmt) {
+        try {
+            ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'games_fts'");
+            boolean existed = rs.next();
+            rs.close();
+            
+            for (String ddl : FULL_TEXT_SCHEMA) {
+                stmt.execute(ddl);
+            }
+            
+            // A database created before the index existed: fill it once from the games table
+            if (!existed) {
+                stmt.execute("INSERT INTO games_fts (games_fts) VALUES ('rebuild')");
+                log.info("Full-text index built for existing games");
+            }
+            fullTextSearch = true;
+        } catch (SQLException e) {
+            log.warn("Full-text search unavailable, title search falls back to LIKE: {}", e.getMessage());
+        }
+    }
+    
+    private void insertSampleData(PooledConnection conn) {
+        try {
+            // Insert sample games
+            PreparedStatement insertGame = conn.getConnection().prepareStatement(
+                "INSERT INTO games (title, genre, price, stock, release_date, esrb_rating, description, publisher, developer) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS
+            );
+            
+            // Elden Ring( Also in Ontology)
+            insertGame.setString(1, "Elden Ring");
+            insertGame.setString(2, "RolePlaying");
+            insertGame.setDouble(3, 59.99);
+            insertGame.setInt(4, 10);
+            insertGame.setString(5, "2022-02-25");
+            insertGame.setString(6, "M");
+            insertGame.setString(7, "An open-world action RPG created in collaboration with George R.R. Martin");
+            insertGame.setString(8, "FromSoftware");
+            insertGame.setString(9, "FromSoftware");
+            insertGame.executeUpdate();
+            
+            ResultSet rs = insertGame.getGeneratedKeys();
+            if (rs.next()) {
+                int eldenRingId = rs.getInt(1);
+                
+                // Add platforms for Elden Ring
+                addPlatform(conn, eldenRingId, "PlayStation 5");
+                addPlatform(conn, eldenRingId, "Xbox Series X");
+                addPlatform(conn, eldenRingId, "Windows PC");
+                
+                // Add features for Elden Ring
+                addFeature(conn, eldenRingId, "Online Multiplayer");
+            }
+            
+            // Add more games that aren't in the ontology
+            insertGame.setString(1, "Call of Duty: Modern Warfare");
+            insertGame.setString(2, "Action");
+            insertGame.setDouble(3, 69.99);
+            insertGame.setInt(4, 15);
+            insertGame.setString(5, "2019-10-25");
+            insertGame.setString(6, "M");
+            insertGame.setString(7, "First-person shooter developed by Infinity Ward");
+            insertGame.setString(8, "Activision");
+            insertGame.setString(9, "Infinity Ward");
+            insertGame.executeUpdate();
+            
+            rs = insertGame.getGeneratedKeys();
+            if (rs.next()) {
+                int codId = rs.getInt(1);
+                
+                // Add platforms for COD
+                addPlatform(conn, codId, "PlayStation 5");
+                addPlatform(conn, codId, "Xbox Series X");
+                addPlatform(conn, codId, "Windows PC");
+                
+                // Add features for COD
+                addFeature(conn, codId, "Online Multiplayer");
+                addFeature(conn, codId, "Campaign Mode");
+            }
+            
+            insertGame.setString(1, "Animal Crossing: New Horizons");
+            insertGame.setString(2, "Simulation");
+            insertGame.setDouble(3, 49.99);
+            insertGame.setInt(4, 20);
+            insertGame.setString(5, "2020-03-20");
+            insertGame.setString(6, "E");
+            insertGame.setString(7, "Life simulation game developed by Nintendo");
+            insertGame.setString(8, "Nintendo");
+            insertGame.setString(9, "Nintendo");
+            insertGame.executeUpdate();
+            
+            rs = insertGame.getGeneratedKeys();
+            if (rs.next()) {
+                int acId = rs.getInt(1);
+                
+                // Add platforms for Animal Crossing
+                addPlatform(conn, acId, "Nintendo Switch");
+                
+                // Add features for Animal Crossing
+                addFeature(conn, acId, "Online Multiplayer");
+                addFeature(conn, acId, "Seasonal Events");
+            }
+            
+            insertGame.close();
+            log.info("Sample data inserted successfully");
+            
+        } catch (SQLException e) {
+            log.error("Error inserting sample data", e);
+        }
+    }
+    
+    private void addPlatform(PooledConnection conn, int gameId, String platformName) throws SQLException {
+        PreparedStatement stmt = conn.prepare(INSERT_PLATFORM_SQL);
+        stmt.setInt(1, gameId);
+        stmt.setString(2, platformName);
+        stmt.executeUpdate();
+    }
+    
+    private void addFeature(PooledConnection conn, int gameId, String featureName) throws SQLException {
+        PreparedStatement stmt = conn.prepare(INSERT_FEATURE_SQL);
+        stmt.setInt(1, gameId);
+        stmt.setString(2, featureName);
+        stmt.executeUpdate();
+    }
+    
+    /**
+     * Finds a game by title: an exact case-insensitive match first, then the best
+     * ranked full-text match containing every word of the query, the last one
+     * possibly unfinished. Both are index lookups; LIKE '%title%' is only used when the FTS5
+     * index is not available or the query has no words to match.
+     */
+    public Game findGame(String title) {
+        try (PooledConnection conn = pool.borrow(FIND_GAME_TIMER)) {
+            String cleanTitle = title.replace("\"", "").trim();
+            
+            Game game = findFirst(conn, FIND_BY_EXACT_TITLE_SQL, cleanTitle);
+            if (game == null) {
+                String match = fullTextSearch ? titleMatchExpression(cleanTitle) : null;
+                game = match != null
+                    ? findFirst(conn, FIND_BY_TITLE_FTS_SQL, match)
+                    : findFirst(conn, FIND_BY_TITLE_SQL, "%" + cleanTitle + "%");
+            }
+            
+            if (game != null) {
+                PreparedStatement platformStmt = conn.prepare(PLATFORMS_FOR_GAME_SQL);
+                platformStmt.setInt(1, game.getId());
+                ResultSet platformRs = platformStmt.executeQuery();
+                
+                while (platformRs.next()) {
+                    game.addPlatform(platformRs.getString("platform_name"));
+                }
+                platformRs.close();
+                
+                PreparedStatement featureStmt = conn.prepare(FEATURES_FOR_GAME_SQL);
+                featureStmt.setInt(1, game.getId());
+                ResultSet featureRs = featureStmt.executeQuery();
+                
+                while (featureRs.next()) {
+                    game.addFeature(featureRs.getString("feature_name"));
+                }
+                featureRs.close();
+                
+                return game;
+            }
+        } catch (SQLException e) {
+            log.error("Error querying database", e);
+        }
+        return null;
+    }
+    
+    /**
+     * Ranked full-text search over title, description, publisher and developer.
+     * Returns an empty list when the FTS5 index is not available.
+     */
+    public List<Game> searchGames(String text, int limit) {
+        List<Game> games = new ArrayList<>();
+        String match = fullTextSearch ? matchExpression(text) : null;
+        if (match == null) {
+            return games;
+        }
+        try (PooledConnection conn = pool.borrow(SEARCH_GAMES_TIMER)) {
+            PreparedStatement stmt = conn.prepare(SEARCH_FTS_SQL);
+            stmt.setString(1, match);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                games.add(mapGame(rs));
+            }
+            rs.close();
+        } catch (SQLException e) {
+            log.error("Error searching games", e);
+        }
+        return games;
+    }
+    
+    private Game findFirst(PooledConnection conn, String sql, String value) throws SQLException {
+        PreparedStatement stmt = conn.prepare(sql);
+        stmt.setString(1, value);
+        ResultSet rs = stmt.executeQuery();
+        Game game = rs.next() ? mapGame(rs) : null;
+        rs.close();
+        return game;
+    }
+    
+    private static String titleMatchExpression(String text) {
+        String words = matchExpression(text);
+        return words == null ? null : "title : (" + words + ")";
+    }
+    
+    // Each word becomes a quoted term, so user input can never be read as FTS5 syntax.
+    // Only the last word may be unfinished; a prefix on every word would make common
+    // words like "game" match most of the catalog.
+    private static String matchExpression(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String word : NON_WORD.split(text)) {
+            if (!word.isEmpty()) {
+                if (match.length() > 0) match.append(' ');
+                match.append('"').append(word).append('"');
+            }
+        }
+        return match.length() == 0 ? null : match.append('*').toString();
+    }
+    
+    public List<Game> findGamesByGenre(String genre) {
+        List<Game> games = new ArrayList<>();
+        try (PooledConnection conn = pool.borrow(FIND_BY_GENRE_TIMER)) {
+            // Genres are a short fixed list, so an exact match through the genre index almost always hits
+            PreparedStatement stmt = conn.prepare(FIND_BY_EXACT_GENRE_SQL);
+            stmt.setString(1, genre.trim());
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.isBeforeFirst()) {
+                rs.close();
+                stmt = conn.prepare(FIND_BY_GENRE_SQL);
+                stmt.setString(1, "%" + genre + "%");
+                rs = stmt.executeQuery();
+            }
+            
+            while (rs.next()) {
+                Game game = new Game(
+                    rs.getInt("id"),
+                    rs.getString("title"),
+                    rs.getString("genre"),
+                    rs.getDouble("price"),
+                    rs.getInt("stock")
+                );
+                games.add(game);
+            }
+            
+            rs.close();
+        } catch (SQLException e) {
+            log.error("Error querying database", e);
+        }
+        return games;
+    }
+    public List<Game> getAllGames() {
+        List<Game> games = new ArrayList<>();
+        Map<Integer, Game> gamesById = new HashMap<>();
+        try (PooledConnection conn = pool.borrow(ALL_GAMES_TIMER)) {
+            ResultSet rs = conn.prepare(ALL_GAMES_SQL).executeQuery();
+            
+            while (rs.next()) {
+                Game game = mapGame(rs);
+                games.add(game);
+                gamesById.put(game.getId(), game);
+            }
+            rs.close();
+            
+            // One pass per child table for the whole result set instead of two queries per game
+            ResultSet platformRs = conn.prepare(ALL_PLATFORMS_SQL).executeQuery();
+            while (platformRs.next()) {
+                Game game = gamesById.get(platformRs.getInt("game_id"));
+                if (game != null) {
+                    game.addPlatform(platformRs.getString("platform_name"));
+                }
+            }
+            
+            platformRs.close();
+            
+            ResultSet featureRs = conn.prepare(ALL_FEATURES_SQL).executeQuery();
+            while (featureRs.next()) {
+                Game game = gamesById.get(featureRs.getInt("game_id"));
+                if (game != null) {
+                    game.addFeature(featureRs.getString("feature_name"));
+                }
+            }
+            featureRs.close();
+        } catch (SQLException e) {
+            log.error("Error querying all games", e);
+        }
+        return games;
+    }
+    /**
+     * One page of the catalog, filtered and ordered by SQLite. Pages are keyed on
+     * the last row's sort value and id rather than an OFFSET, so a deep page costs
+     * the same as the first one. A failed query throws IllegalStateException rather
+     * than returning an empty or partly loaded page.
+     */
+    public GamePage findGames(GameQuery query) {
+        Cursor cursor = query.decodeCursor();
+        Sort sort = query.getSort();
+        String sortColumn = sort.isByPrice() ? "price" : "title COLLATE NOCASE";
+        String direction = sort.isDescending() ? "DESC" : "ASC";
+        
+        StringBuilder sql = new StringBuilder("SELECT * FROM games WHERE source_key IS NULL");
+        List<Object> params = new ArrayList<>();
+        if (query.getGenre() != null) {
+            sql.append(" AND genre = ? COLLATE NOCASE");
+            params.add(query.getGenre());
+        }
+        if (query.getPlatform() != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM game_platforms p WHERE p.game_id = games.id AND p.platform_name = ? COLLATE NOCASE)");
+            params.add(query.getPlatform());
+        }
+        if (query.getMinPrice() != null) {
+            sql.append(" AND price >= ?");
+            params.add(query.getMinPrice());
+        }
+        if (query.getMaxPrice() != null) {
+            sql.append(" AND price <= ?");
+            params.add(query.getMaxPrice());
+        }
+        if (cursor != null) {
+            Object sortValue = sort.isByPrice() ? (Object) Double.valueOf(cursor.getSortValue()) : cursor.getSortValue();
+            // The plain bound lets SQLite seek the index to the cursor; the row value breaks ties on id
+            sql.append(" AND ").append(sortColumn).append(sort.isDescending() ? " <= ?" : " >= ?");
+            sql.append(" AND (").append(sortColumn).append(", id) ").append(sort.isDescending() ? "<" : ">").append(" (?, ?)");
+            params.add(sortValue);
+            params.add(sortValue);
+            params.add(cursor.getId());
+        }
+        // One row past the page tells us whether there is a next one
+        sql.append(" ORDER BY ").append(sortColumn).append(" ").append(direction)
+           .append(", id ").append(direction).append(" LIMIT ?");
+        params.add(query.getLimit() + 1);
+        
+        List<Game> games = new ArrayList<>();
+        Map<Integer, Game> gamesById = new HashMap<>();
+        String nextCursor = null;
+        try (PooledConnection conn = pool.borrow(FIND_GAMES_TIMER)) {
+            PreparedStatement stmt = conn.prepare(sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                if (games.size() == query.getLimit()) {
+                    Game last = games.get(games.size() - 1);
+                    String lastValue = sort.isByPrice() ? String.valueOf(last.getPrice()) : last.getTitle();
+                    nextCursor = new Cursor(sort, lastValue, last.getId()).encode();
+                    break;
+                }
+                Game game = mapGame(rs);
+                games.add(game);
+                gamesById.put(game.getId(), game);
+            }
+            rs.close();
+            
+            if (!games.isEmpty()) {
+                loadChildren(conn, gamesById);
+            }
+        } catch (SQLException e) {
+            // An empty page, or one without platforms and features, would pass for a real one
+            throw new IllegalStateException("Error querying games page: " + e.getMessage(), e);
+        }
+        return new GamePage(games, nextCursor);
+    }
+    
+    // Platforms and features for just the games on a page, one indexed query per child table
+    private void loadChildren(PooledConnection conn, Map<Integer, Game> gamesById) throws SQLException {
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < gamesById.size(); i++) {
+            ids.append(i == 0 ? "?" : ", ?");
+        }
+        
+        String platformSql = "SELECT game_id, platform_name FROM game_platforms WHERE game_id IN (" + ids + ") ORDER BY id";
+        try (PreparedStatement stmt = conn.getConnection().prepareStatement(platformSql)) {
+            bindIds(stmt, gamesById);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                gamesById.get(rs.getInt("game_id")).addPlatform(rs.getString("platform_name"));
+            }
+        }
+        
+        String featureSql = "SELECT game_id, feature_name FROM game_features WHERE game_id IN (" + ids + ") ORDER BY id";
+        try (PreparedStatement stmt = conn.getConnection().prepareStatement(featureSql)) {
+            bindIds(stmt, gamesById);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                gamesById.get(rs.getInt("game_id")).addFeature(rs.getString("feature_name"));
+            }
+        }
+    }
+    
+    private static void bindIds(PreparedStatement stmt, Map<Integer, Game> gamesById) throws SQLException {
+        int index = 1;
+        for (Integer id : gamesById.keySet()) {
+            stmt.setInt(index++, id);
+        }
+    }
+    
+    private Game mapGame(ResultSet rs) throws SQLException {
+        Game game = new Game(
+            rs.getInt("id"),
+            rs.getString("title"),
+            rs.getString("genre"),
+            rs.getDouble("price"),
+            rs.getInt("stock")
+        );
+        
+        // Games mirrored from another store keep that store's name
+        String source = rs.getString("source");
+        game.setSource(source != null ? source : "SQLite Database");
+        
+        if (rs.getString("release_date") != null) {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+            try {
+                game.setReleaseDate(sdf.parse(rs.getString("release_date")));
+            } catch (ParseException e) {
+                log.warn("Error parsing date: {}", e.getMessage());
+            }
+        }
+        if (rs.getString("esrb_rating") != null) {
+            game.setEsrbRating(rs.getString("esrb_rating"));
+        }
+        if (rs.getString("description") != null) {
+            game.setDescription(rs.getString("description"));
+        }
+        if (rs.getString("publisher") != null) {
+            game.setPublisher(rs.getString("publisher"));
+        }
+        if (rs.getString("developer") != null) {
+            game.setDeveloper(rs.getString("developer"));
+        }
+        return game;
+    }
+    
+    /**
+     * Checksums of the games mirrored from a source, by the key that source knows
+     * them by. Used to work out which mirrored rows a sync actually has to write.
+     */
+    public Map<String, String> getMirroredChecksums(String source) throws SQLException {
+        Map<String, String> checksums = new HashMap<>();
+        try (PooledConnection conn = pool.borrow(MIRRORED_CHECKSUMS_TIMER)) {
+            PreparedStatement stmt = conn.prepare(MIRRORED_CHECKSUMS_SQL);
+            stmt.setString(1, source);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                checksums.put(rs.getString("source_key"), rs.getString("checksum"));
+            }
+            rs.close();
+        }
+        return checksums;
+    }
+    
+    /**
+     * Inserts or updates mirrored games (by source key, with the checksum they were
+     * computed from) and deletes the removed keys, all in one transaction. Mirrored
+     * rows are found by title lookups but left out of the catalog listings.
+     */
+    public void updateMirroredGames(String source, Map<String, Game> changed, Map<String, String> checksums,
+                                    Collection<String> removed) throws SQLException {
+        try (PooledConnection conn = pool.borrow(UPDATE_MIRRORED_TIMER)) {
+            Connection connection = conn.getConnection();
+            connection.setAutoCommit(false);
+            
+            PreparedStatement upsert = conn.prepare(UPSERT_MIRRORED_SQL);
+            for (Map.Entry<String, Game> entry : changed.entrySet()) {
+                Game game = entry.getValue();
+                upsert.setString(1, game.getTitle());
+                upsert.setString(2, game.getGenre() != null ? game.getGenre() : "");
+                upsert.setDouble(3, game.getPrice());
+                upsert.setInt(4, game.getStock());
+                upsert.setString(5, game.getReleaseDate() != null
+                    ? new SimpleDateFormat("yyyy-MM-dd").format(game.getReleaseDate()) : null);
+                upsert.setString(6, game.getEsrbRating());
+                upsert.setString(7, game.getDescription());
+                upsert.setString(8, game.getPublisher());
+                upsert.setString(9, game.getDeveloper());
+                upsert.setString(10, source);
+                upsert.setString(11, entry.getKey());
+                upsert.setString(12, checksums.get(entry.getKey()));
+                upsert.executeUpdate();
+                
+                int gameId = mirroredId(conn, entry.getKey());
+                deleteChildren(conn, gameId);
+                for (String platform : game.getPlatforms()) {
+                    addPlatform(conn, gameId, platform);
+                }
+                for (String feature : game.getFeatures()) {
+                    addFeature(conn, gameId, feature);
+                }
+            }
+            
+            for (String key : removed) {
+                int gameId = mirroredId(conn, key);
+                if (gameId >= 0) {
+                    deleteChildren(conn, gameId);
+                    PreparedStatement delete = conn.prepare(DELETE_GAME_SQL);
+                    delete.setInt(1, gameId);
+                    delete.executeUpdate();
+                }
+            }
+            
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+    }
+    
+    private int mirroredId(PooledConnection conn, String sourceKey) throws SQLException {
+        PreparedStatement stmt = conn.prepare(MIRRORED_ID_SQL);
+        stmt.setString(1, sourceKey);
+        ResultSet rs = stmt.executeQuery();
+        int id = rs.next() ? rs.getInt(1) : -1;
+        rs.close();
+        return id;
+    }
+    
+    private void deleteChildren(PooledConnection conn, int gameId) throws SQLException {
+        PreparedStatement platforms = conn.prepare(DELETE_PLATFORMS_SQL);
+        platforms.setInt(1, gameId);
+        platforms.executeUpdate();
+        
+        PreparedStatement features = conn.prepare(DELETE_FEATURES_SQL);
+        features.setInt(1, gameId);
+        features.executeUpdate();
+    }
+    
+    public void close() {
+        if (pool != null) {
+            pool.close();
+            log.info("Database connection pool closed");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package com.gamestore.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.metrics.GameStoreMetrics;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Fixed-size pool of SQLite connections. Each connection keeps its own cache of
+ * prepared statements, so a thread holding a connection reuses them without
+ * re-preparing the SQL and without sharing them with other threads.
+ */
+public class SQLiteConnectionPool {
+    private static final Logger log = LoggerFactory.getLogger(SQLiteConnectionPool.class);
+
+    private static final Timer POOL_WAIT = GameStoreMetrics.dbPoolWait();
+
+    private final DatabaseConfig config;
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> all = new ArrayList<>();
+    private volatile boolean closed;
+
+    public SQLiteConnectionPool(DatabaseConfig config) throws SQLException {
+        this.config = config;
+        this.idle = new ArrayBlockingQueue<>(config.getPoolSize());
+
+        try {
+            Class.forName(config.getDriver());
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("JDBC driver not found: " + config.getDriver(), e);
+        }
+
+        for (int i = 0; i < config.getPoolSize(); i++) {
+            PooledConnection pooled = new PooledConnection(openConnection());
+            all.add(pooled);
+            idle.add(pooled);
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        Connection connection = config.getUser() != null
+            ? DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword())
+            : DriverManager.getConnection(config.getUrl());
+
+        try (Statement stmt = connection.createStatement()) {
+            // WAL lets readers on other connections proceed while one connection writes
+            stmt.execute("PRAGMA journal_mode=" + config.getJournalMode());
+            stmt.execute("PRAGMA busy_timeout=" + config.getBusyTimeoutMillis());
+            stmt.execute("PRAGMA synchronous=NORMAL");
+        }
+        return connection;
+    }
+
+    public PooledConnection borrow() throws SQLException {
+        return borrow(null);
+    }
+
+    /**
+     * Borrows a connection and, when it is returned, records on the timer how long it
+     * was held, counting from the start of the wait for it.
+     */
+    public PooledConnection borrow(Timer timer) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long startedAt = System.nanoTime();
+        try {
+            PooledConnection pooled = idle.poll(config.getBorrowTimeoutMillis(), TimeUnit.MILLISECONDS);
+            POOL_WAIT.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            if (pooled == null) {
+                throw new SQLException("Timed out after " + config.getBorrowTimeoutMillis()
+                    + " ms waiting for a database connection");
+            }
+            pooled.timer = timer;
+            pooled.borrowedAt = startedAt;
+            return pooled;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+    public int getPoolSize() { return all.size(); }
+    public int getIdleCount() { return idle.size(); }
+
+    public void close() {
+        closed = true;
+        for (PooledConnection pooled : all) {
+            pooled.closePhysical();
+        }
+        idle.clear();
+    }
+
+    /**
+     * A borrowed connection. Closing it returns it to the pool; the statements
+     * it prepared stay cached with it.
+     */
+    public class PooledConnection implements AutoCloseable {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private Timer timer;
+        private long borrowedAt;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement stmt = statements.get(sql);
+            if (stmt == null || stmt.isClosed()) {
+                stmt = connection.prepareStatement(sql);
+                statements.put(sql, stmt);
+            }
+            return stmt;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        @Override
+        public void close() {
+            if (timer != null) {
+                timer.record(System.nanoTime() - borrowedAt, TimeUnit.NANOSECONDS);
+                timer = null;
+            }
+            if (closed) {
+                closePhysical();
+                return;
+            }
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                log.warn("Error resetting pooled connection: {}", e.getMessage());
+            }
+            idle.offer(this);
+        }
+
+        private void closePhysical() {
+            try {
+                for (PreparedStatement stmt : statements.values()) {
+                    stmt.close();
+                }
+                statements.clear();
+                if (!connection.isClosed()) {
+                    connection.close();
+                }
+            } catch (SQLException e) {
+                log.warn("Error closing pooled connection: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.gamestore.metrics;
+
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * The meters recorded outside Spring: by the JADE agents, the database connectors
+ * and the gateway queue. They register with Micrometer's global registry, which
+ * Spring Boot's Prometheus registry joins when the application starts, so they show
+ * up under /actuator/prometheus next to http.server.requests. Where nothing has
+ * joined the global registry, such as a peripheral container's JVM, recording costs
+ * close to nothing and nothing is exported.
+ */
+public final class GameStoreMetrics {
+    public static final String DB_QUERY = "gamestore.db.query";
+    public static final String DB_POOL_WAIT = "gamestore.db.pool.wait";
+    public static final String REASONER = "gamestore.ontology.reasoner";
+    public static final String ONTOLOGY_QUERY = "gamestore.ontology.query";
+    public static final String QUEUE_WAIT = "gamestore.gateway.queue.wait";
+    public static final String ACL_ROUND_TRIP = "gamestore.acl.round.trip";
+    public static final String CACHE_GETS = "gamestore.cache.gets";
+
+    private GameStoreMetrics() {}
+
+    public static MeterRegistry registry() {
+        return Metrics.globalRegistry;
+    }
+
+    /** Time spent in one RelationalDBConnector operation, from borrowing the connection to returning it. */
+    public static Timer dbQuery(String operation) {
+        return Timer.builder(DB_QUERY)
+            .description("SQLite operations, including the wait for a pooled connection")
+            .tag("operation", operation)
+            .register(registry());
+    }
+
+    public static Timer dbPoolWait() {
+        return Timer.builder(DB_POOL_WAIT)
+            .description("Wait for an idle SQLite connection")
+            .register(registry());
+    }
+
+    /** A call into the OWL reasoner, or a step that keeps its results current. */
+    public static Timer reasoner(String operation) {
+        return Timer.builder(REASONER)
+            .description("OWL reasoner calls and materializing their results")
+            .tag("operation", operation)
+            .register(registry());
+    }
+
+    public static Timer ontologyQuery(String operation) {
+        return Timer.builder(ONTOLOGY_QUERY)
+            .description("Ontology lookups, answered from the materialized snapshot")
+            .tag("operation", operation)
+            .register(registry());
+    }
+
+    public static Timer queueWait(String lane) {
+        return Timer.builder(QUEUE_WAIT)
+            .description("Time a request waits in the gateway queue before ApiGatewayAgent sends it")
+            .tag("lane", lane)
+            .register(registry());
+    }
+
+    /**
+     * Request to reply between two agents. The target is the agent's local name with
+     * any replica qualifier, so each GameStop and Distributor replica is timed apart.
+     */
+    public static Timer aclRoundTrip(String requester, String target) {
+        return Timer.builder(ACL_ROUND_TRIP)
+            .description("ACL request to reply, per target agent")
+            .tag("requester", requester)
+            .tag("target", target)
+            .register(registry());
+    }
+
+    /**
+     * Hit and miss counters read from a cache's own statistics, so the cache does
+     * not count anything twice. The hit rate is hits / (hits + misses) over any window.
+     */
+    public static <T> void cacheGets(String cache, String owner, T obj,
+                                     ToDoubleFunction<T> hits, ToDoubleFunction<T> misses) {
+        FunctionCounter.builder(CACHE_GETS, obj, hits)
+            .description("Cache lookups by result")
+            .tags("cache", cache, "owner", owner, "result", "hit")
+            .register(registry());
+        FunctionCounter.builder(CACHE_GETS, obj, misses)
+            .description("Cache lookups by result")
+            .tags("cache", cache, "owner", owner, "result", "miss")
+            .register(registry());
+    }
+}
\ No newline at end of file
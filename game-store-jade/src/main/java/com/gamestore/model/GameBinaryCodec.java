@@ -0,0 +1,345 @@
+package com.gamestore.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary form of game listings for agent replies sent with
+ * ACLMessage.setByteSequenceContent instead of JSON text. Fields are written in a
+ * fixed order without names, numbers as varints, and a string that was already
+ * written (a genre, platform, publisher...) as a back-reference to it. Payloads
+ * above COMPRESS_THRESHOLD can be gzipped; the header records whether they were.
+ */
+public final class GameBinaryCodec {
+    /** Value of the ACL encoding slot on a reply that carries a binary listing. */
+    public static final String ENCODING = "x-gamestore-games";
+
+    /** User-defined request parameter in which the requester says what it can read. */
+    public static final String ACCEPT_PARAMETER = "accept-encoding";
+    public static final String ACCEPT_BINARY = "binary";
+    public static final String ACCEPT_BINARY_GZIP = "binary+gzip";
+
+    public static final int COMPRESS_THRESHOLD = 16 * 1024;
+
+    private static final byte MAGIC = 'G';
+    private static final byte VERSION = 1;
+    private static final int FLAG_GZIP = 1;
+    private static final int FLAG_PAGE = 2;
+
+    // Per-game bit set of the optional fields that follow
+    private static final int HAS_DESCRIPTION = 1;
+    private static final int HAS_PUBLISHER = 1 << 1;
+    private static final int HAS_DEVELOPER = 1 << 2;
+    private static final int HAS_ESRB_RATING = 1 << 3;
+    private static final int HAS_RELEASE_DATE = 1 << 4;
+    private static final int HAS_SOURCE = 1 << 5;
+    private static final int PRICE_IN_CENTS = 1 << 6;
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private GameBinaryCodec() {}
+
+    /** True when an accept-encoding value allows a binary reply. */
+    public static boolean isAccepted(String accept) {
+        return ACCEPT_BINARY.equals(accept) || ACCEPT_BINARY_GZIP.equals(accept);
+    }
+
+    public static boolean isCompressionAccepted(String accept) {
+        return ACCEPT_BINARY_GZIP.equals(accept);
+    }
+
+    public static byte[] encode(List<Game> games, boolean compress) {
+        return encode(games, null, false, compress);
+    }
+
+    public static byte[] encodePage(GamePage page, boolean compress) {
+        return encode(page.getGames(), page.getNextCursor(), true, compress);
+    }
+
+    /** Decodes either form; a plain list comes back as a page without a cursor. */
+    public static GamePage decode(byte[] payload) {
+        if (payload.length < 3 || payload[0] != MAGIC || payload[1] != VERSION) {
+            throw new IllegalArgumentException("Not a game listing payload");
+        }
+        int flags = payload[2];
+        Reader in = new Reader((flags & FLAG_GZIP) != 0 ? gunzip(payload) : payload, (flags & FLAG_GZIP) != 0 ? 0 : 3);
+
+        int count = in.readCount();
+        List<Game> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            games.add(readGame(in));
+        }
+        String nextCursor = (flags & FLAG_PAGE) != 0 ? in.readString() : null;
+        return new GamePage(games, nextCursor);
+    }
+
+    private static byte[] encode(List<Game> games, String nextCursor, boolean page, boolean compress) {
+        Writer out = new Writer(64 + games.size() * 96);
+        out.writeVarint(games.size());
+        for (Game game : games) {
+            writeGame(game, out);
+        }
+        if (page) {
+            out.writeString(nextCursor);
+        }
+
+        int flags = page ? FLAG_PAGE : 0;
+        byte[] body = out.buffer;
+        int bodyLength = out.size;
+        if (compress && bodyLength > COMPRESS_THRESHOLD) {
+            body = gzip(body, bodyLength);
+            bodyLength = body.length;
+            flags |= FLAG_GZIP;
+        }
+
+        byte[] payload = new byte[bodyLength + 3];
+        payload[0] = MAGIC;
+        payload[1] = VERSION;
+        payload[2] = (byte) flags;
+        System.arraycopy(body, 0, payload, 3, bodyLength);
+        return payload;
+    }
+
+    private static void writeGame(Game game, Writer out) {
+        long cents = Math.round(game.getPrice() * 100);
+        boolean priceInCents = cents / 100.0 == game.getPrice();
+
+        int present = 0;
+        if (game.getDescription() != null) present |= HAS_DESCRIPTION;
+        if (game.getPublisher() != null) present |= HAS_PUBLISHER;
+        if (game.getDeveloper() != null) present |= HAS_DEVELOPER;
+        if (game.getEsrbRating() != null) present |= HAS_ESRB_RATING;
+        if (game.getReleaseDate() != null) present |= HAS_RELEASE_DATE;
+        if (game.getSource() != null) present |= HAS_SOURCE;
+        if (priceInCents) present |= PRICE_IN_CENTS;
+
+        out.writeVarint(present);
+        out.writeSignedVarint(game.getId());
+        out.writeString(game.getTitle());
+        out.writeString(game.getGenre());
+        if (priceInCents) {
+            out.writeSignedVarint(cents);
+        } else {
+            out.writeLong(Double.doubleToLongBits(game.getPrice()));
+        }
+        out.writeSignedVarint(game.getStock());
+
+        if ((present & HAS_DESCRIPTION) != 0) out.writeString(game.getDescription());
+        if ((present & HAS_PUBLISHER) != 0) out.writeString(game.getPublisher());
+        if ((present & HAS_DEVELOPER) != 0) out.writeString(game.getDeveloper());
+        if ((present & HAS_ESRB_RATING) != 0) out.writeString(game.getEsrbRating());
+        if ((present & HAS_RELEASE_DATE) != 0) {
+            // The calendar day, as GameJsonWriter writes it
+            long epochDay = Instant.ofEpochMilli(game.getReleaseDate().getTime())
+                .atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+            out.writeSignedVarint(epochDay);
+        }
+        if ((present & HAS_SOURCE) != 0) out.writeString(game.getSource());
+
+        out.writeStrings(game.getPlatforms());
+        out.writeStrings(game.getFeatures());
+    }
+
+    private static Game readGame(Reader in) {
+        int present = (int) in.readVarint();
+        Game game = new Game();
+        game.setId((int) in.readSignedVarint());
+        game.setTitle(in.readString());
+        game.setGenre(in.readString());
+        if ((present & PRICE_IN_CENTS) != 0) {
+            game.setPrice(in.readSignedVarint() / 100.0);
+        } else {
+            game.setPrice(Double.longBitsToDouble(in.readLong()));
+        }
+        game.setStock((int) in.readSignedVarint());
+
+        if ((present & HAS_DESCRIPTION) != 0) game.setDescription(in.readString());
+        if ((present & HAS_PUBLISHER) != 0) game.setPublisher(in.readString());
+        if ((present & HAS_DEVELOPER) != 0) game.setDeveloper(in.readString());
+        if ((present & HAS_ESRB_RATING) != 0) game.setEsrbRating(in.readString());
+        if ((present & HAS_RELEASE_DATE) != 0) {
+            // UTC midnight of that day, which is what Jackson makes of the JSON "yyyy-MM-dd"
+            game.setReleaseDate(new Date(in.readSignedVarint() * MILLIS_PER_DAY));
+        }
+        if ((present & HAS_SOURCE) != 0) game.setSource(in.readString());
+
+        int platforms = in.readCount();
+        for (int i = 0; i < platforms; i++) {
+            game.addPlatform(in.readString());
+        }
+        int features = in.readCount();
+        for (int i = 0; i < features; i++) {
+            game.addFeature(in.readString());
+        }
+        return game;
+    }
+
+    private static byte[] gzip(byte[] data, int length) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, 8192)) {
+            out.write(data, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] payload) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(payload, 3, payload.length - 3), 8192)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt compressed game listing", e);
+        }
+    }
+
+    // String tags: 0 is null, 1 is a new string (length and UTF-8 follow), n >= 2 repeats string n - 2
+    private static final class Writer {
+        private byte[] buffer;
+        private int size;
+        private final Map<String, Integer> written = new HashMap<>();
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeSignedVarint(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            Integer index = written.get(value);
+            if (index != null) {
+                writeVarint(index + 2L);
+                return;
+            }
+            written.put(value, written.size());
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(1);
+            writeVarint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, buffer, size, utf8.length);
+            size += utf8.length;
+        }
+
+        void writeStrings(List<String> values) {
+            if (values == null) {
+                writeVarint(0);
+                return;
+            }
+            writeVarint(values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+        private final List<String> read = new ArrayList<>();
+
+        Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in game listing");
+        }
+
+        long readSignedVarint() {
+            long raw = readVarint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        // A list length, checked against what is left so a corrupt payload can't trigger a huge allocation
+        int readCount() {
+            long count = readVarint();
+            if (count > buffer.length - position) {
+                throw new IllegalArgumentException("Malformed count in game listing");
+            }
+            return (int) count;
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (next() & 0xFF);
+            }
+            return value;
+        }
+
+        String readString() {
+            long tag = readVarint();
+            if (tag == 0) {
+                return null;
+            }
+            if (tag == 1) {
+                int length = readCount();
+                String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+                position += length;
+                read.add(value);
+                return value;
+            }
+            if (tag - 2 >= read.size()) {
+                throw new IllegalArgumentException("Malformed string reference in game listing");
+            }
+            return read.get((int) (tag - 2));
+        }
+
+        private byte next() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Truncated game listing");
+            }
+            return buffer[position++];
+        }
+    }
+}
\ No newline at end of file
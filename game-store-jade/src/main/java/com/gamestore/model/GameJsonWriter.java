@@ -0,0 +1,172 @@
+package com.gamestore.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes games as JSON straight into a StringBuilder. Strings are escaped per
+ * RFC 8259 and dates are written as yyyy-MM-dd without a SimpleDateFormat.
+ * The toJson helpers reuse one buffer per thread, so serializing a catalog only
+ * allocates the resulting String.
+ */
+public final class GameJsonWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private GameJsonWriter() {}
+
+    public static String toJson(Game game) {
+        StringBuilder out = acquireBuffer();
+        writeGame(game, out);
+        return release(out);
+    }
+
+    public static String toJsonArray(List<Game> games) {
+        StringBuilder out = acquireBuffer();
+        writeGames(games, out);
+        return release(out);
+    }
+
+    public static String toJsonPage(GamePage page) {
+        StringBuilder out = acquireBuffer();
+        out.append("{\"games\":");
+        writeGames(page.getGames(), out);
+        out.append(",\"nextCursor\":");
+        writeString(page.getNextCursor(), out);
+        out.append('}');
+        return release(out);
+    }
+
+    public static void writeGames(List<Game> games, StringBuilder out) {
+        out.append('[');
+        for (int i = 0; i < games.size(); i++) {
+            if (i > 0) out.append(',');
+            writeGame(games.get(i), out);
+        }
+        out.append(']');
+    }
+
+    public static void writeGame(Game game, StringBuilder out) {
+        out.append("{\"id\":").append(game.getId());
+        out.append(",\"title\":");
+        writeString(game.getTitle(), out);
+        out.append(",\"genre\":");
+        writeString(game.getGenre(), out);
+        out.append(",\"price\":");
+        writeNumber(game.getPrice(), out);
+        out.append(",\"stock\":").append(game.getStock());
+
+        writeOptional("description", game.getDescription(), out);
+        writeOptional("publisher", game.getPublisher(), out);
+        writeOptional("developer", game.getDeveloper(), out);
+        writeOptional("esrbRating", game.getEsrbRating(), out);
+
+        if (game.getReleaseDate() != null) {
+            out.append(",\"releaseDate\":\"");
+            writeDate(game.getReleaseDate(), out);
+            out.append('"');
+        }
+
+        writeOptional("source", game.getSource(), out);
+        writeStringList("platforms", game.getPlatforms(), out);
+        writeStringList("features", game.getFeatures(), out);
+
+        out.append('}');
+    }
+
+    public static void writeString(String value, StringBuilder out) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            // Copy the unescaped run in one go, then the escape sequence
+            out.append(value, start, i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                case '\b': out.append("\\b"); break;
+                case '\f': out.append("\\f"); break;
+                default:
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        out.append(value, start, value.length());
+        out.append('"');
+    }
+
+    private static void writeOptional(String name, String value, StringBuilder out) {
+        if (value != null) {
+            out.append(",\"").append(name).append("\":");
+            writeString(value, out);
+        }
+    }
+
+    private static void writeStringList(String name, List<String> values, StringBuilder out) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        out.append(",\"").append(name).append("\":[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) out.append(',');
+            writeString(values.get(i), out);
+        }
+        out.append(']');
+    }
+
+    private static void writeNumber(double value, StringBuilder out) {
+        // JSON has no NaN or Infinity
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null");
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static void writeDate(Date date, StringBuilder out) {
+        // Same calendar day SimpleDateFormat("yyyy-MM-dd") produced in the default time zone
+        LocalDate day = Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+        appendPadded(day.getYear(), 4, out);
+        out.append('-');
+        appendPadded(day.getMonthValue(), 2, out);
+        out.append('-');
+        appendPadded(day.getDayOfMonth(), 2, out);
+    }
+
+    private static void appendPadded(int value, int width, StringBuilder out) {
+        for (int limit = 10, digits = 1; digits < width; limit *= 10, digits++) {
+            if (value < limit) out.append('0');
+        }
+        out.append(value);
+    }
+
+    private static StringBuilder acquireBuffer() {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        return out;
+    }
+
+    private static String release(StringBuilder out) {
+        String json = out.toString();
+        // Don't let one huge catalog pin a large buffer on the thread forever
+        if (out.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.set(new StringBuilder(1024));
+        }
+        return json;
+    }
+}
@@ -0,0 +1,24 @@
+package com.gamestore.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a catalog listing. nextCursor is null on the last page.
+ */
+public class GamePage {
+    private List<Game> games = new ArrayList<>();
+    private String nextCursor;
+
+    public GamePage() {}
+
+    public GamePage(List<Game> games, String nextCursor) {
+        this.games = games;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Game> getGames() { return games; }
+    public void setGames(List<Game> games) { this.games = games; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
\ No newline at end of file
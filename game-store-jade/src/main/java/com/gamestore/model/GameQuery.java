@@ -0,0 +1,188 @@
+package com.gamestore.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Filters, sort order and page position for a catalog listing. GameController
+ * builds it from the request, ApiGatewayAgent carries it to GameStopAgent as ACL
+ * user-defined parameters, and RelationalDBConnector turns it into one indexed,
+ * keyset-paginated query.
+ */
+public class GameQuery {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private static final String PARAM_PREFIX = "query-";
+
+    public enum Sort {
+        TITLE("title"), TITLE_DESC("-title"), PRICE("price"), PRICE_DESC("-price");
+
+        private final String param;
+
+        Sort(String param) {
+            this.param = param;
+        }
+
+        public String getParam() { return param; }
+        public boolean isDescending() { return param.startsWith("-"); }
+        public boolean isByPrice() { return this == PRICE || this == PRICE_DESC; }
+
+        public static Sort fromParam(String param) {
+            for (Sort sort : values()) {
+                if (sort.param.equalsIgnoreCase(param.trim())) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("Unknown sort '" + param + "', expected title, -title, price or -price");
+        }
+    }
+
+    private int limit = DEFAULT_LIMIT;
+    private String cursor;
+    private String genre;
+    private String platform;
+    private Double minPrice;
+    private Double maxPrice;
+    private Sort sort = Sort.TITLE;
+
+    public int getLimit() { return limit; }
+    public String getCursor() { return cursor; }
+    public String getGenre() { return genre; }
+    public String getPlatform() { return platform; }
+    public Double getMinPrice() { return minPrice; }
+    public Double getMaxPrice() { return maxPrice; }
+    public Sort getSort() { return sort; }
+
+    public GameQuery limit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        this.limit = Math.min(limit, MAX_LIMIT);
+        return this;
+    }
+
+    public GameQuery cursor(String cursor) {
+        this.cursor = blankToNull(cursor);
+        return this;
+    }
+
+    public GameQuery genre(String genre) {
+        this.genre = blankToNull(genre);
+        return this;
+    }
+
+    public GameQuery platform(String platform) {
+        this.platform = blankToNull(platform);
+        return this;
+    }
+
+    public GameQuery priceRange(Double minPrice, Double maxPrice) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        return this;
+    }
+
+    public GameQuery sort(Sort sort) {
+        this.sort = sort;
+        return this;
+    }
+
+    /** Position after the last game of the previous page, or null for the first page. */
+    public Cursor decodeCursor() {
+        return cursor == null ? null : Cursor.decode(cursor, sort);
+    }
+
+    public Map<String, String> toParameters() {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put(PARAM_PREFIX + "limit", String.valueOf(limit));
+        params.put(PARAM_PREFIX + "sort", sort.getParam());
+        putIfSet(params, "cursor", cursor);
+        putIfSet(params, "genre", genre);
+        putIfSet(params, "platform", platform);
+        putIfSet(params, "min-price", minPrice);
+        putIfSet(params, "max-price", maxPrice);
+        return params;
+    }
+
+    /** Rebuilds a query from its parameters; returns null when the request carried none. */
+    public static GameQuery fromParameters(Function<String, String> parameter) {
+        String limit = parameter.apply(PARAM_PREFIX + "limit");
+        if (limit == null) {
+            return null;
+        }
+        String sort = parameter.apply(PARAM_PREFIX + "sort");
+        String minPrice = parameter.apply(PARAM_PREFIX + "min-price");
+        String maxPrice = parameter.apply(PARAM_PREFIX + "max-price");
+
+        return new GameQuery()
+            .limit(Integer.parseInt(limit))
+            .sort(sort == null ? Sort.TITLE : Sort.fromParam(sort))
+            .cursor(parameter.apply(PARAM_PREFIX + "cursor"))
+            .genre(parameter.apply(PARAM_PREFIX + "genre"))
+            .platform(parameter.apply(PARAM_PREFIX + "platform"))
+            .priceRange(minPrice == null ? null : Double.valueOf(minPrice),
+                        maxPrice == null ? null : Double.valueOf(maxPrice));
+    }
+
+    private static void putIfSet(Map<String, String> params, String name, Object value) {
+        if (value != null) {
+            params.put(PARAM_PREFIX + name, value.toString());
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    /**
+     * Opaque page token: the sort order plus the sort value and id of the last
+     * game returned, so the next page starts right after it even if rows were
+     * inserted or deleted in between.
+     */
+    public static class Cursor {
+        private final Sort sort;
+        private final String sortValue;
+        private final int id;
+
+        public Cursor(Sort sort, String sortValue, int id) {
+            this.sort = sort;
+            this.sortValue = sortValue;
+            this.id = id;
+        }
+
+        public Sort getSort() { return sort; }
+        public String getSortValue() { return sortValue; }
+        public int getId() { return id; }
+
+        public String encode() {
+            String raw = sort.getParam() + "\n" + id + "\n" + sortValue;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String token, Sort expectedSort) {
+            Cursor cursor;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\n", 3);
+                cursor = new Cursor(Sort.fromParam(parts[0]), parts[2], Integer.parseInt(parts[1]));
+                if (cursor.sort.isByPrice()) {
+                    Double.parseDouble(cursor.sortValue);
+                }
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+            if (cursor.sort != expectedSort) {
+                throw new IllegalArgumentException("Cursor belongs to sort " + cursor.sort.getParam()
+                    + ", not " + expectedSort.getParam());
+            }
+            return cursor;
+        }
+    }
+}
\ No newline at end of file
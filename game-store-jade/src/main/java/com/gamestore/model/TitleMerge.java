@@ -0,0 +1,105 @@
+package com.gamestore.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * K-way merge of game lists that are each already ordered by title, as the
+ * agents return them. Produces the combined order in O(n log k) without
+ * copying everything into one list and sorting it again.
+ */
+public final class TitleMerge {
+
+    public static final Comparator<Game> BY_TITLE =
+        Comparator.comparing(Game::getTitle, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
+    private TitleMerge() {}
+
+    public static List<Game> mergeByTitle(List<List<Game>> sources) {
+        int total = 0;
+        for (List<Game> source : sources) {
+            total += source.size();
+        }
+        List<Game> merged = new ArrayList<>(total);
+        Iterator<Game> it = iterator(sources);
+        while (it.hasNext()) {
+            merged.add(it.next());
+        }
+        return merged;
+    }
+
+    /**
+     * Lazily yields the games of all sources in title order. A source that is not
+     * sorted (SQLite's NOCASE only folds ASCII, for instance) is sorted on its own
+     * first, which costs one linear check for the lists that already are.
+     */
+    public static Iterator<Game> iterator(List<List<Game>> sources) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()));
+        for (int i = 0; i < sources.size(); i++) {
+            List<Game> source = sources.get(i);
+            if (!isSorted(source)) {
+                source = new ArrayList<>(source);
+                source.sort(BY_TITLE);
+            }
+            Iterator<Game> games = source.iterator();
+            if (games.hasNext()) {
+                heads.add(new Head(games.next(), games, i));
+            }
+        }
+
+        return new Iterator<Game>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Game next() {
+                Head head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                Game game = head.game;
+                if (head.rest.hasNext()) {
+                    head.game = head.rest.next();
+                    heads.add(head);
+                }
+                return game;
+            }
+        };
+    }
+
+    static boolean isSorted(List<Game> games) {
+        Game previous = null;
+        for (Game game : games) {
+            if (previous != null && BY_TITLE.compare(previous, game) > 0) {
+                return false;
+            }
+            previous = game;
+        }
+        return true;
+    }
+
+    // Current game of one source; ties go to the earlier source so the merge is stable
+    private static final class Head implements Comparable<Head> {
+        private Game game;
+        private final Iterator<Game> rest;
+        private final int source;
+
+        Head(Game game, Iterator<Game> rest, int source) {
+            this.game = game;
+            this.rest = rest;
+            this.source = source;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            int byTitle = BY_TITLE.compare(game, other.game);
+            return byTitle != 0 ? byTitle : Integer.compare(source, other.source);
+        }
+    }
+}
\ No newline at end of file
@@ -1,219 +1,316 @@
-package com.gamestore.ontology;
-
-import java.io.File;
-import java.util.Set;
-
-import org.semanticweb.owlapi.apibinding.OWLManager;
-import org.semanticweb.owlapi.model.*;
-import org.semanticweb.owlapi.reasoner.OWLReasoner;
-import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
-import org.semanticweb.HermiT.Reasoner;
-
-import com.gamestore.model.Game;
-import java.util.List;
-import java.util.ArrayList;
-
-public class OntologyDBConnector {
-    private OWLOntology ontology;
-    private OWLOntologyManager manager;
-    private OWLDataFactory factory;
-    private OWLReasoner reasoner;
-    
-    private static final String BASE_IRI = "http://www.semanticweb.org/rujam/ontologies/2025/3/games/ontology#";
-    
-    public OntologyDBConnector() {
-        try {
-            manager = OWLManager.createOWLOntologyManager();
-            File ontologyFile = new File("src/main/resources/games_ontology.rdf");
-            ontology = manager.loadOntologyFromOntologyDocument(ontologyFile);
-            factory = manager.getOWLDataFactory();
-            
-            // Create reasoner
-            OWLReasonerFactory reasonerFactory = new Reasoner.ReasonerFactory();
-            reasoner = reasonerFactory.createReasoner(ontology);
-            
-            System.out.println("Ontology loaded successfully: " + ontology.getOntologyID());
-            System.out.println("Total axioms: " + ontology.getAxiomCount());
-        } catch (Exception e) {
-            System.err.println("Error loading ontology: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-    
-    public Game findGame(String title) {
-        try {
-            String cleanTitle = title.replace("\"", "");
-            System.out.println("Searching ontology for: '" + cleanTitle + "'");
-            
-            System.out.println("Number of individuals in ontology: " + ontology.getIndividualsInSignature().size());
-            
-            System.out.println("Data properties in ontology:");
-            for (OWLDataProperty prop : ontology.getDataPropertiesInSignature()) {
-                System.out.println(" - " + prop.getIRI().toString());
-            }
-            
-            OWLDataProperty hasTitleProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasTitle"));
-            System.out.println("Looking for property: " + hasTitleProperty.getIRI().toString());
-            
-            for (OWLNamedIndividual individual : ontology.getIndividualsInSignature()) {
-                System.out.println("Checking individual: " + individual.getIRI().toString());
-                
-                Set<OWLLiteral> titleValues = reasoner.getDataPropertyValues(individual, hasTitleProperty);
-                System.out.println("  Title values found: " + titleValues.size());
-                
-                for (OWLLiteral titleLiteral : titleValues) {
-                    String literalValue = titleLiteral.getLiteral();
-                    System.out.println("  Found title: '" + literalValue + "'");
-                    
-                    if (literalValue.toLowerCase().contains(cleanTitle.toLowerCase())) {
-                        System.out.println("  MATCH FOUND!");
-                        return createGameFromIndividual(individual);
-                    }
-                }
-            }
-            
-            System.out.println("No game found with title containing: '" + cleanTitle + "'");
-        } catch (Exception e) {
-            System.err.println("Error querying ontology: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return null;
-    }
-    
-    
-    public List<Game> getAllGames() {
-        List<Game> games = new ArrayList<>();
-        try {
-            for (OWLNamedIndividual individual : ontology.getIndividualsInSignature()) {
-                Set<OWLClass> types = reasoner.getTypes(individual, false).getFlattened();
-                boolean isVideoGame = false;
-                
-                for (OWLClass type : types) {
-                    String className = type.getIRI().getFragment();
-                    if (className.endsWith("Game")) {
-                        isVideoGame = true;
-                        break;
-                    }
-                }
-                
-                if (isVideoGame) {
-                    Game game = createGameFromIndividual(individual);
-                    if (game != null && game.getTitle() != null) {
-                        games.add(game);
-                    }
-                }
-            }
-            
-            games.sort((g1, g2) -> g1.getTitle().compareToIgnoreCase(g2.getTitle()));
-            
-        } catch (Exception e) {
-            System.err.println("Error querying all games from ontology: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return games;
-    }
-    
-    private Game createGameFromIndividual(OWLNamedIndividual individual) {
-        Game game = new Game();
-        
-        try {
-        	
-        	 game.setSource("Ontology Database");
-        	 
-            OWLDataProperty hasTitleProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasTitle"));
-            OWLDataProperty hasDescriptionProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasDescription"));
-            OWLDataProperty hasPriceProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasPrice"));
-            OWLDataProperty hasESRB_RatingProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasESRB_Rating"));
-            
-            OWLObjectProperty hasPublisherProperty = factory.getOWLObjectProperty(IRI.create(BASE_IRI + "hasPublisher"));
-            OWLObjectProperty hasDeveloperProperty = factory.getOWLObjectProperty(IRI.create(BASE_IRI + "hasDeveloper"));
-            OWLObjectProperty runsOnPlatformProperty = factory.getOWLObjectProperty(IRI.create(BASE_IRI + "runsOnPlatform"));
-            OWLObjectProperty hasFeatureProperty = factory.getOWLObjectProperty(IRI.create(BASE_IRI + "hasFeature"));
-            
-            Set<OWLLiteral> titleValues = reasoner.getDataPropertyValues(individual, hasTitleProperty);
-            if (!titleValues.isEmpty()) {
-                game.setTitle(titleValues.iterator().next().getLiteral());
-            }
-            
-            Set<OWLLiteral> descriptionValues = reasoner.getDataPropertyValues(individual, hasDescriptionProperty);
-            if (!descriptionValues.isEmpty()) {
-                game.setDescription(descriptionValues.iterator().next().getLiteral());
-            }
-            
-            Set<OWLLiteral> priceValues = reasoner.getDataPropertyValues(individual, hasPriceProperty);
-            if (!priceValues.isEmpty()) {
-                game.setPrice(Double.parseDouble(priceValues.iterator().next().getLiteral()));
-            }
-            
-            Set<OWLLiteral> ratingValues = reasoner.getDataPropertyValues(individual, hasESRB_RatingProperty);
-            if (!ratingValues.isEmpty()) {
-                game.setEsrbRating(ratingValues.iterator().next().getLiteral());
-            }
-            
-            Set<OWLClass> types = reasoner.getTypes(individual, false).getFlattened();
-            for (OWLClass type : types) {
-                String className = type.getIRI().getFragment();
-                if (className.endsWith("Game") && !className.equals("VideoGame")) {
-                    game.setGenre(className.replace("Game", ""));
-                    break;
-                }
-            }
-            
-            Set<OWLNamedIndividual> publishers = reasoner.getObjectPropertyValues(individual, hasPublisherProperty).getFlattened();
-            if (!publishers.isEmpty()) {
-                OWLNamedIndividual publisher = publishers.iterator().next();
-                OWLDataProperty hasNameProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasName"));
-                Set<OWLLiteral> publisherNames = reasoner.getDataPropertyValues(publisher, hasNameProperty);
-                if (!publisherNames.isEmpty()) {
-                    game.setPublisher(publisherNames.iterator().next().getLiteral());
-                }
-            }
-            
-            Set<OWLNamedIndividual> developers = reasoner.getObjectPropertyValues(individual, hasDeveloperProperty).getFlattened();
-            if (!developers.isEmpty()) {
-                OWLNamedIndividual developer = developers.iterator().next();
-                OWLDataProperty hasNameProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasName"));
-                Set<OWLLiteral> developerNames = reasoner.getDataPropertyValues(developer, hasNameProperty);
-                if (!developerNames.isEmpty()) {
-                    game.setDeveloper(developerNames.iterator().next().getLiteral());
-                }
-            }
-            
-            Set<OWLNamedIndividual> platforms = reasoner.getObjectPropertyValues(individual, runsOnPlatformProperty).getFlattened();
-            for (OWLNamedIndividual platform : platforms) {
-                OWLDataProperty hasNameProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasName"));
-                Set<OWLLiteral> platformNames = reasoner.getDataPropertyValues(platform, hasNameProperty);
-                if (!platformNames.isEmpty()) {
-                    game.addPlatform(platformNames.iterator().next().getLiteral());
-                }
-            }
-            
-            Set<OWLNamedIndividual> features = reasoner.getObjectPropertyValues(individual, hasFeatureProperty).getFlattened();
-            for (OWLNamedIndividual feature : features) {
-                OWLDataProperty hasNameProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasName"));
-                Set<OWLLiteral> featureNames = reasoner.getDataPropertyValues(feature, hasNameProperty);
-                if (!featureNames.isEmpty()) {
-                    game.addFeature(featureNames.iterator().next().getLiteral());
-                }
-            }
-            
-            // Set ID and stock (not in ontology, but needed for model)
-            game.setId(-1);  // -1 indicates from ontology
-            game.setStock(0); // No stock info in ontology
-            
-        } catch (Exception e) {
-            System.err.println("Error extracting game data from ontology: " + e.getMessage());
-            e.printStackTrace();
-        }
-        
-        return game;
-    }
-    
-    
-    
-    public void close() {
-        if (reasoner != null) {
-            reasoner.dispose();
-        }
-    }
+package com.gamestore.ontology;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import org.semanticweb.HermiT.Reasoner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamestore.metrics.GameStoreMetrics;
+import com.gamestore.model.Game;
+import java.util.List;
+import java.util.ArrayList;
+
+import io.micrometer.core.instrument.Timer;
+
+public class OntologyDBConnector {
+    private static final Logger log = LoggerFactory.getLogger(OntologyDBConnector.class);
+    
+    private OWLOntology ontology;
+    private OWLOntologyManager manager;
+    private OWLDataFactory factory;
+    private OWLReasoner reasoner;
+    
+    // Everything the request path needs, read without touching the reasoner
+    private volatile OntologySnapshot snapshot = OntologySnapshot.empty();
+    
+    // Modification time of the document the current ontology was loaded from
+    private volatile long loadedDocumentModified;
+    
+    private static final String BASE_IRI = "http://www.semanticweb.org/rujam/ontologies/2025/3/games/ontology#";
+    private static final String ONTOLOGY_FILE = "src/main/resources/games_ontology.rdf";
+    
+    // Only load and ontology changes reach the reasoner; findGame is timed to show it stays off it
+    private static final Timer CREATE_REASONER_TIMER = GameStoreMetrics.reasoner("createReasoner");
+    private static final Timer FLUSH_TIMER = GameStoreMetrics.reasoner("flush");
+    private static final Timer MATERIALIZE_TIMER = GameStoreMetrics.reasoner("materialize");
+    private static final Timer FIND_GAME_TIMER = GameStoreMetrics.ontologyQuery("findGame");
+    
+    public OntologyDBConnector() {
+        try {
+            load();
+        } catch (Exception e) {
+            log.error("Error loading ontology", e);
+        }
+    }
+    
+    /**
+     * Reloads the ontology document and swaps in a freshly materialized snapshot.
+     * Searches keep using the previous snapshot until the new one is ready, and
+     * keep it if the document cannot be loaded.
+     */
+    public synchronized void reload() throws OWLOntologyCreationException {
+        OWLReasoner previousReasoner = reasoner;
+        
+        load();
+        
+        if (previousReasoner != null) {
+            previousReasoner.dispose();
+        }
+    }
+    
+    // Builds the new ontology, reasoner and snapshot aside and swaps them in only once
+    // all of them are ready, so a failed load leaves the previous ones current and the
+    // document still counts as modified, and the next sync run tries again
+    private void load() throws OWLOntologyCreationException {
+        File ontologyFile = new File(ONTOLOGY_FILE);
+        // Read before parsing, so a write that lands during the load is picked up next time
+        long documentModified = ontologyFile.lastModified();
+        
+        OWLOntologyManager newManager = OWLManager.createOWLOntologyManager();
+        OWLOntology newOntology = newManager.loadOntologyFromOntologyDocument(ontologyFile);
+        OWLDataFactory newFactory = newManager.getOWLDataFactory();
+        
+        // Create reasoner
+        OWLReasonerFactory reasonerFactory = new Reasoner.ReasonerFactory();
+        OWLReasoner newReasoner = CREATE_REASONER_TIMER.record(() -> reasonerFactory.createReasoner(newOntology));
+        
+        OntologySnapshot newSnapshot;
+        try {
+            newSnapshot = MATERIALIZE_TIMER.record(() -> materialize(newOntology, newFactory, newReasoner));
+        } catch (RuntimeException e) {
+            newReasoner.dispose();
+            throw e;
+        }
+        
+        manager = newManager;
+        ontology = newOntology;
+        factory = newFactory;
+        reasoner = newReasoner;
+        snapshot = newSnapshot;
+        loadedDocumentModified = documentModified;
+        
+        // Re-materialize whenever the loaded ontology is edited in place
+        manager.addOntologyChangeListener(this::onOntologyChanged);
+        
+        log.info("Ontology loaded successfully: {}", ontology.getOntologyID());
+        log.info("Total axioms: {}", ontology.getAxiomCount());
+        log.info("Materialized games: {}", snapshot.size());
+    }
+    
+    private synchronized void onOntologyChanged(List<? extends OWLOntologyChange> changes) {
+        boolean affected = false;
+        for (OWLOntologyChange change : changes) {
+            if (change.isAxiomChange() && change.getOntology().equals(ontology)) {
+                affected = true;
+                break;
+            }
+        }
+        
+        if (affected) {
+            try {
+                FLUSH_TIMER.record(reasoner::flush);
+                snapshot = MATERIALIZE_TIMER.record(() -> materialize(ontology, factory, reasoner));
+                log.info("Ontology changed, re-materialized games: {}", snapshot.size());
+            } catch (RuntimeException e) {
+                log.error("Error re-materializing games, keeping the previous snapshot", e);
+            }
+        }
+    }
+    
+    /** A copy of the matching game, which the caller may modify. */
+    public Game findGame(String title) {
+        String cleanTitle = title.replace("\"", "");
+        
+        long startedAt = System.nanoTime();
+        Game game = snapshot.findGame(cleanTitle);
+        FIND_GAME_TIMER.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        if (game == null) {
+            log.debug("No game found with title containing: '{}'", cleanTitle);
+            return null;
+        }
+        return new Game(game);
+    }
+    
+    /** Copies of the video games, which the caller may modify. */
+    public List<Game> getAllGames() {
+        List<Game> videoGames = snapshot.getVideoGames();
+        List<Game> copies = new ArrayList<>(videoGames.size());
+        for (Game game : videoGames) {
+            copies.add(new Game(game));
+        }
+        return copies;
+    }
+    
+    /** The current snapshot; its games are shared with every other reader and must not be modified. */
+    public OntologySnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /** Modification time of the ontology document on disk, 0 if it cannot be read. */
+    public long getDocumentModified() {
+        return new File(ONTOLOGY_FILE).lastModified();
+    }
+    
+    /** True when the document on disk has changed since it was last loaded. */
+    public boolean isDocumentModified() {
+        return getDocumentModified() != loadedDocumentModified;
+    }
+    
+    // Runs every reasoner query once, so requests only ever read the result. A failure,
+    // including one extracting a single game, escapes, so the caller keeps the previous
+    // snapshot instead of a partial one
+    private OntologySnapshot materialize(OWLOntology ontology, OWLDataFactory factory, OWLReasoner reasoner) {
+        OWLDataProperty hasTitleProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasTitle"));
+        
+        Map<IRI, Game> gamesByIri = new LinkedHashMap<>();
+        List<Game> videoGames = new ArrayList<>();
+        TitleIndex titleIndex = new TitleIndex();
+        
+        for (OWLNamedIndividual individual : ontology.getIndividualsInSignature()) {
+            Set<OWLLiteral> titleValues = reasoner.getDataPropertyValues(individual, hasTitleProperty);
+            if (titleValues.isEmpty()) {
+                continue;
+            }
+            
+            Game game = createGameFromIndividual(individual, factory, reasoner);
+            game.setPlatforms(Collections.unmodifiableList(game.getPlatforms()));
+            game.setFeatures(Collections.unmodifiableList(game.getFeatures()));
+            gamesByIri.put(individual.getIRI(), game);
+            
+            for (OWLLiteral titleLiteral : titleValues) {
+                titleIndex.add(individual.getIRI(), titleLiteral.getLiteral());
+            }
+            
+            if (isVideoGame(individual, reasoner) && game.getTitle() != null) {
+                videoGames.add(game);
+            }
+        }
+        
+        videoGames.sort((g1, g2) -> g1.getTitle().compareToIgnoreCase(g2.getTitle()));
+        
+        return new OntologySnapshot(gamesByIri, videoGames, titleIndex);
+    }
+    
+    private boolean isVideoGame(OWLNamedIndividual individual, OWLReasoner reasoner) {
+        Set<OWLClass> types = reasoner.getTypes(individual, false).getFlattened();
+        for (OWLClass type : types) {
+            String className = type.getIRI().getFragment();
+            if (className.endsWith("Game")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private Game createGameFromIndividual(OWLNamedIndividual individual, OWLDataFactory factory, OWLReasoner reasoner) {
+        Game game = new Game();
+        
+        try {
+        	
+        	 game.setSource("Ontology Database");
+        	 
+            OWLDataProperty hasTitleProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasTitle"));
+            OWLDataProperty hasDescriptionProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasDescription"));
+            OWLDataProperty hasPriceProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasPrice"));
+            OWLDataProperty hasESRB_RatingProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasESRB_Rating"));
+            
+            OWLObjectProperty hasPublisherProperty = factory.getOWLObjectProperty(IRI.create(BASE_IRI + "hasPublisher"));
+            OWLObjectProperty hasDeveloperProperty = factory.getOWLObjectProperty(IRI.create(BASE_IRI + "hasDeveloper"));
+            OWLObjectProperty runsOnPlatformProperty = factory.getOWLObjectProperty(IRI.create(BASE_IRI + "runsOnPlatform"));
+            OWLObjectProperty hasFeatureProperty = factory.getOWLObjectProperty(IRI.create(BASE_IRI + "hasFeature"));
+            
+            Set<OWLLiteral> titleValues = reasoner.getDataPropertyValues(individual, hasTitleProperty);
+            if (!titleValues.isEmpty()) {
+                game.setTitle(titleValues.iterator().next().getLiteral());
+            }
+            
+            Set<OWLLiteral> descriptionValues = reasoner.getDataPropertyValues(individual, hasDescriptionProperty);
+            if (!descriptionValues.isEmpty()) {
+                game.setDescription(descriptionValues.iterator().next().getLiteral());
+            }
+            
+            Set<OWLLiteral> priceValues = reasoner.getDataPropertyValues(individual, hasPriceProperty);
+            if (!priceValues.isEmpty()) {
+                game.setPrice(Double.parseDouble(priceValues.iterator().next().getLiteral()));
+            }
+            
+            Set<OWLLiteral> ratingValues = reasoner.getDataPropertyValues(individual, hasESRB_RatingProperty);
+            if (!ratingValues.isEmpty()) {
+                game.setEsrbRating(ratingValues.iterator().next().getLiteral());
+            }
+            
+            Set<OWLClass> types = reasoner.getTypes(individual, false).getFlattened();
+            for (OWLClass type : types) {
+                String className = type.getIRI().getFragment();
+                if (className.endsWith("Game") && !className.equals("VideoGame")) {
+                    game.setGenre(className.replace("Game", ""));
+                    break;
+                }
+            }
+            
+            Set<OWLNamedIndividual> publishers = reasoner.getObjectPropertyValues(individual, hasPublisherProperty).getFlattened();
+            if (!publishers.isEmpty()) {
+                OWLNamedIndividual publisher = publishers.iterator().next();
+                OWLDataProperty hasNameProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasName"));
+                Set<OWLLiteral> publisherNames = reasoner.getDataPropertyValues(publisher, hasNameProperty);
+                if (!publisherNames.isEmpty()) {
+                    game.setPublisher(publisherNames.iterator().next().getLiteral());
+                }
+            }
+            
+            Set<OWLNamedIndividual> developers = reasoner.getObjectPropertyValues(individual, hasDeveloperProperty).getFlattened();
+            if (!developers.isEmpty()) {
+                OWLNamedIndividual developer = developers.iterator().next();
+                OWLDataProperty hasNameProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasName"));
+                Set<OWLLiteral> developerNames = reasoner.getDataPropertyValues(developer, hasNameProperty);
+                if (!developerNames.isEmpty()) {
+                    game.setDeveloper(developerNames.iterator().next().getLiteral());
+                }
+            }
+            
+            Set<OWLNamedIndividual> platforms = reasoner.getObjectPropertyValues(individual, runsOnPlatformProperty).getFlattened();
+            for (OWLNamedIndividual platform : platforms) {
+                OWLDataProperty hasNameProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasName"));
+                Set<OWLLiteral> platformNames = reasoner.getDataPropertyValues(platform, hasNameProperty);
+                if (!platformNames.isEmpty()) {
+                    game.addPlatform(platformNames.iterator().next().getLiteral());
+                }
+            }
+            
+            Set<OWLNamedIndividual> features = reasoner.getObjectPropertyValues(individual, hasFeatureProperty).getFlattened();
+            for (OWLNamedIndividual feature : features) {
+                OWLDataProperty hasNameProperty = factory.getOWLDataProperty(IRI.create(BASE_IRI + "hasName"));
+                Set<OWLLiteral> featureNames = reasoner.getDataPropertyValues(feature, hasNameProperty);
+                if (!featureNames.isEmpty()) {
+                    game.addFeature(featureNames.iterator().next().getLiteral());
+                }
+            }
+            
+            // Set ID and stock (not in ontology, but needed for model)
+            game.setId(-1);  // -1 indicates from ontology
+            game.setStock(0); // No stock info in ontology
+            
+        } catch (RuntimeException e) {
+            // One bad individual fails the whole snapshot rather than leaving a half-filled game in it
+            throw new IllegalStateException("Error extracting game data from ontology for " + individual.getIRI(), e);
+        }
+        
+        return game;
+    }
+    
+    public void close() {
+        if (reasoner != null) {
+            reasoner.dispose();
+        }
+    }
 }
\ No newline at end of file
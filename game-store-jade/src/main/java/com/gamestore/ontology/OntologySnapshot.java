@@ -0,0 +1,56 @@
+package com.gamestore.ontology;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.semanticweb.owlapi.model.IRI;
+
+import com.gamestore.model.Game;
+
+/**
+ * Games materialized from the reasoner at one point in time. Instances are never
+ * modified after construction; OntologyDBConnector swaps in a new one on reload.
+ * The Game objects are shared by every reader and their setters still work, so
+ * callers must not modify them; OntologyDBConnector.findGame and getAllGames hand
+ * out copies for callers that need their own.
+ * Only a snapshot materialized from a loaded ontology is complete: materializing
+ * fails as a whole when any game cannot be extracted in full, so a complete snapshot
+ * holds every game and every field the ontology has. The empty one in place before
+ * the first successful load says nothing about which games exist.
+ */
+public class OntologySnapshot {
+    private final Map<IRI, Game> gamesByIri;
+    private final List<Game> videoGames;
+    private final TitleIndex titleIndex;
+    private final long materializedAt;
+    private final boolean complete;
+
+    public OntologySnapshot(Map<IRI, Game> gamesByIri, List<Game> videoGames, TitleIndex titleIndex) {
+        this(gamesByIri, videoGames, titleIndex, true);
+    }
+
+    private OntologySnapshot(Map<IRI, Game> gamesByIri, List<Game> videoGames, TitleIndex titleIndex, boolean complete) {
+        this.gamesByIri = Collections.unmodifiableMap(gamesByIri);
+        this.videoGames = Collections.unmodifiableList(videoGames);
+        this.titleIndex = titleIndex;
+        this.materializedAt = System.currentTimeMillis();
+        this.complete = complete;
+    }
+
+    public static OntologySnapshot empty() {
+        return new OntologySnapshot(Collections.emptyMap(), Collections.emptyList(), new TitleIndex(), false);
+    }
+
+    public Game findGame(String title) {
+        IRI match = titleIndex.findFirst(title);
+        return match != null ? gamesByIri.get(match) : null;
+    }
+
+    public Game getGame(IRI individual) { return gamesByIri.get(individual); }
+    public Map<IRI, Game> getGamesByIri() { return gamesByIri; }
+    public List<Game> getVideoGames() { return videoGames; }
+    public int size() { return gamesByIri.size(); }
+    public long getMaterializedAt() { return materializedAt; }
+    public boolean isComplete() { return complete; }
+}
@@ -0,0 +1,184 @@
+package com.gamestore.ontology;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.semanticweb.owlapi.model.IRI;
+
+import com.gamestore.db.RelationalDBConnector;
+import com.gamestore.model.Game;
+
+/**
+ * Copies the ontology's video games into the SQLite store, marked with their source,
+ * so GameStop finds a title the ontology knows without asking the Distributor. A run
+ * that finds nothing changed costs two comparisons: the document's modification time
+ * and the snapshot in memory. Otherwise only the games whose checksum differs from the
+ * one stored with their row are written. Rows are only written and removed against a
+ * complete snapshot, so an ontology that has not loaded never empties the mirror and a
+ * half-extracted game never becomes a row GameStop serves as authoritative.
+ * Runs must not overlap.
+ */
+public class OntologySync {
+    public static final String SOURCE = "Ontology Database";
+
+    private final OntologyDBConnector ontologyDB;
+    private final RelationalDBConnector dbConnector;
+
+    // Checksums of the mirrored rows by IRI, read from SQLite on the first run and kept in step after
+    private Map<String, String> storedChecksums;
+    private OntologySnapshot syncedSnapshot;
+
+    private long runs;
+    private long unchangedRuns;
+    private long gamesWritten;
+    private long gamesRemoved;
+    private long totalNanos;
+    private long maxLagMillis;
+
+    public OntologySync(OntologyDBConnector ontologyDB, RelationalDBConnector dbConnector) {
+        this.ontologyDB = ontologyDB;
+        this.dbConnector = dbConnector;
+    }
+
+    public Result run() throws Exception {
+        long started = System.nanoTime();
+        runs++;
+
+        long changedAt;
+        if (ontologyDB.isDocumentModified()) {
+            changedAt = ontologyDB.getDocumentModified();
+            ontologyDB.reload();
+        } else {
+            changedAt = ontologyDB.getSnapshot().getMaterializedAt();
+        }
+
+        OntologySnapshot snapshot = ontologyDB.getSnapshot();
+        if (snapshot == syncedSnapshot) {
+            unchangedRuns++;
+            return new Result(0, 0, System.nanoTime() - started, -1);
+        }
+
+        // Nothing loaded yet: an empty snapshot would read as every game removed
+        if (!snapshot.isComplete()) {
+            unchangedRuns++;
+            return new Result(0, 0, System.nanoTime() - started, -1);
+        }
+
+        if (storedChecksums == null) {
+            storedChecksums = dbConnector.getMirroredChecksums(SOURCE);
+        }
+
+        Set<Game> videoGames = Collections.newSetFromMap(new IdentityHashMap<>());
+        videoGames.addAll(snapshot.getVideoGames());
+
+        Map<String, Game> changed = new LinkedHashMap<>();
+        Map<String, String> checksums = new HashMap<>();
+        Set<String> removed = new HashSet<>(storedChecksums.keySet());
+        for (Map.Entry<IRI, Game> entry : snapshot.getGamesByIri().entrySet()) {
+            if (!videoGames.contains(entry.getValue())) {
+                continue;
+            }
+            String key = entry.getKey().toString();
+            String checksum = checksum(entry.getValue());
+            removed.remove(key);
+            if (!checksum.equals(storedChecksums.get(key))) {
+                changed.put(key, entry.getValue());
+                checksums.put(key, checksum);
+            }
+        }
+
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            dbConnector.updateMirroredGames(SOURCE, changed, checksums, removed);
+            storedChecksums.putAll(checksums);
+            storedChecksums.keySet().removeAll(removed);
+        }
+        syncedSnapshot = snapshot;
+
+        long nanos = System.nanoTime() - started;
+        long lagMillis = Math.max(0, System.currentTimeMillis() - changedAt);
+        gamesWritten += changed.size();
+        gamesRemoved += removed.size();
+        totalNanos += nanos;
+        maxLagMillis = Math.max(maxLagMillis, lagMillis);
+        return new Result(changed.size(), removed.size(), nanos, lagMillis);
+    }
+
+    public String summary() {
+        return runs + " sync runs (" + unchangedRuns + " with nothing to do), " + gamesWritten + " games written, "
+            + gamesRemoved + " removed, " + TimeUnit.NANOSECONDS.toMillis(totalNanos) + " ms in total, max lag "
+            + maxLagMillis + " ms";
+    }
+
+    // Platforms and features come out of the reasoner as sets, so their order is not part of the checksum
+    static String checksum(Game game) {
+        StringBuilder content = new StringBuilder();
+        append(content, game.getTitle());
+        append(content, game.getGenre());
+        append(content, String.valueOf(game.getPrice()));
+        append(content, String.valueOf(game.getStock()));
+        append(content, game.getReleaseDate() != null ? String.valueOf(game.getReleaseDate().getTime()) : null);
+        append(content, game.getEsrbRating());
+        append(content, game.getDescription());
+        append(content, game.getPublisher());
+        append(content, game.getDeveloper());
+        List<String> platforms = new ArrayList<>(game.getPlatforms());
+        Collections.sort(platforms);
+        for (String platform : platforms) {
+            append(content, platform);
+        }
+        content.append('\u001e');
+        List<String> features = new ArrayList<>(game.getFeatures());
+        Collections.sort(features);
+        for (String feature : features) {
+            append(content, feature);
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    private static void append(StringBuilder content, String value) {
+        // Unit separators keep ("ab", "c") and ("a", "bc") apart; null differs from ""
+        content.append(value == null ? "\u0000" : value).append('\u001f');
+    }
+
+    /** What one run did. lagMillis is -1 when there was nothing new to copy. */
+    public static class Result {
+        private final int written;
+        private final int removed;
+        private final long nanos;
+        private final long lagMillis;
+
+        Result(int written, int removed, long nanos, long lagMillis) {
+            this.written = written;
+            this.removed = removed;
+            this.nanos = nanos;
+            this.lagMillis = lagMillis;
+        }
+
+        public boolean isUnchanged() { return lagMillis < 0; }
+        public int getWritten() { return written; }
+        public int getRemoved() { return removed; }
+        public long getNanos() { return nanos; }
+        public long getLagMillis() { return lagMillis; }
+    }
+}
\ No newline at end of file
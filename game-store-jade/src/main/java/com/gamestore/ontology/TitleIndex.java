@@ -0,0 +1,135 @@
+package com.gamestore.ontology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.IRI;
+
+/**
+ * In-memory trigram index over game titles, used for substring title lookups
+ * without asking the reasoner about every individual.
+ */
+public class TitleIndex {
+    private static final int GRAM_SIZE = 3;
+
+    private final Map<String, Set<IRI>> postings = new HashMap<>();
+    private final Map<IRI, Set<String>> titlesByIndividual = new LinkedHashMap<>();
+
+    public static String normalize(String title) {
+        return title.replace("\"", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    public synchronized void add(IRI individual, String title) {
+        String normalized = normalize(title);
+        Set<String> titles = titlesByIndividual.computeIfAbsent(individual, k -> new HashSet<>());
+        if (!titles.add(normalized)) {
+            return;
+        }
+        for (String gram : grams(normalized)) {
+            postings.computeIfAbsent(gram, k -> new HashSet<>()).add(individual);
+        }
+    }
+
+    public synchronized void remove(IRI individual, String title) {
+        String normalized = normalize(title);
+        Set<String> titles = titlesByIndividual.get(individual);
+        if (titles == null || !titles.remove(normalized)) {
+            return;
+        }
+        if (titles.isEmpty()) {
+            titlesByIndividual.remove(individual);
+        }
+
+        // Only drop a posting if none of the remaining titles still produce the gram
+        Set<String> remainingGrams = new HashSet<>();
+        for (String other : titles) {
+            remainingGrams.addAll(grams(other));
+        }
+        for (String gram : grams(normalized)) {
+            if (remainingGrams.contains(gram)) {
+                continue;
+            }
+            Set<IRI> individuals = postings.get(gram);
+            if (individuals != null) {
+                individuals.remove(individual);
+                if (individuals.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        titlesByIndividual.clear();
+    }
+
+    public synchronized int size() {
+        return titlesByIndividual.size();
+    }
+
+    /**
+     * Returns the individual whose title contains the query, preferring the
+     * shortest matching title so an exact title wins over a longer one.
+     */
+    public synchronized IRI findFirst(String query) {
+        String normalized = normalize(query);
+        IRI best = null;
+        int bestLength = Integer.MAX_VALUE;
+
+        for (IRI individual : candidates(normalized)) {
+            for (String title : titlesByIndividual.getOrDefault(individual, Collections.emptySet())) {
+                if (title.length() < bestLength && title.contains(normalized)) {
+                    best = individual;
+                    bestLength = title.length();
+                }
+            }
+        }
+        return best;
+    }
+
+    private Iterable<IRI> candidates(String query) {
+        // Queries shorter than a gram cannot use the postings; the title map is still cheap to scan
+        if (query.length() < GRAM_SIZE) {
+            return titlesByIndividual.keySet();
+        }
+
+        Set<IRI> smallest = null;
+        List<Set<IRI>> others = new ArrayList<>();
+        for (String gram : grams(query)) {
+            Set<IRI> individuals = postings.get(gram);
+            if (individuals == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || individuals.size() < smallest.size()) {
+                if (smallest != null) {
+                    others.add(smallest);
+                }
+                smallest = individuals;
+            } else {
+                others.add(individuals);
+            }
+        }
+
+        Set<IRI> result = new HashSet<>(smallest);
+        for (Set<IRI> individuals : others) {
+            result.retainAll(individuals);
+        }
+        return result;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+}
@@ -24,6 +24,18 @@ export interface Game {
     games: Game[];
     source: string;
     message: string;
+    count?: number;
+    nextCursor?: string | null;
+  }
+  
+  export interface GameListQuery {
+    limit?: number;
+    cursor?: string;
+    genre?: string;
+    platform?: string;
+    minPrice?: number;
+    maxPrice?: number;
+    sort?: 'title' | '-title' | 'price' | '-price';
   }
   
   export interface CombinedGameListResponse {
@@ -31,6 +43,8 @@ export interface Game {
     sqliteGames: Game[];
     ontologyGames: Game[];
     message: string;
+    degradedSources?: string[];
+    partial?: boolean;
   }
   
   export interface EnhancedGame extends Game {
@@ -5,6 +5,7 @@ import {
   Game, 
   GameSearchResponse, 
   GameListResponse, 
+  GameListQuery,
   CombinedGameListResponse,
   EnhancedGame 
 } from '../models/game.model';
@@ -27,9 +28,16 @@ export class GameService {
       );
   }
 
-  // Get all games from just the SQLite database
-  getAllGamesFromSQLite(): Observable<GameListResponse> {
-    return this.http.get<GameListResponse>(`${this.apiUrl}/sqlite/all`)
+  // Get one page of games from just the SQLite database; pass nextCursor back to get the next page
+  getAllGamesFromSQLite(query: GameListQuery = {}): Observable<GameListResponse> {
+    let params = new HttpParams();
+    Object.entries(query).forEach(([key, value]) => {
+      if (value !== undefined && value !== null && value !== '') {
+        params = params.set(key, String(value));
+      }
+    });
+    
+    return this.http.get<GameListResponse>(`${this.apiUrl}/sqlite/all`, { params })
       .pipe(
         catchError(this.handleError<GameListResponse>('getAllGamesFromSQLite'))
       );